@@ -40,6 +40,11 @@ public class DefaultBuilder {
         return null;
     }
 
+    public void addPointToDatabase(PointNodeDatabase points, PointNode point) {
+        if (points != null)
+            points.put(point);
+    }
+
     public PointNode buildPointNode(String name, double x, double y) {
         return null;
     }
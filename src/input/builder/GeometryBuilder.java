@@ -0,0 +1,44 @@
+package input.builder;
+
+import java.util.List;
+
+import input.components.*;
+import input.components.point.*;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+
+/*
+ * A builder which constructs the full geometry hierarchy: the nodes of a
+ * figure, its point database and its segment database.
+ */
+public class GeometryBuilder extends DefaultBuilder {
+    public GeometryBuilder() {
+    }
+
+    @Override
+    public FigureNode buildFigureNode(String description,
+            PointNodeDatabase points,
+            SegmentNodeDatabase segments) {
+        return new FigureNode(description, points, segments);
+    }
+
+    @Override
+    public SegmentNodeDatabase buildSegmentNodeDatabase() {
+        return new SegmentNodeDatabase();
+    }
+
+    @Override
+    public SegmentNode buildSegmentNode(PointNode pt1, PointNode pt2) {
+        return new SegmentNode(pt1, pt2);
+    }
+
+    @Override
+    public PointNodeDatabase buildPointDatabaseNode(List<PointNode> points) {
+        return new PointNodeDatabase(points);
+    }
+
+    @Override
+    public PointNode buildPointNode(String name, double x, double y) {
+        return new PointNode(name, x, y);
+    }
+}
@@ -1,5 +1,14 @@
 package input.components;
 
+import input.visitor.ComponentNodeVisitor;
+
 public interface ComponentNode {
 	void unparse(StringBuilder sb, int level);
+
+	/**
+	 * Passes this node to the visitor's visit method for its class.
+	 *
+	 * @return the result of the visit
+	 */
+	<R, C> R accept(ComponentNodeVisitor<R, C> visitor, C context);
 }
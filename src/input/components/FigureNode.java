@@ -5,7 +5,8 @@ import org.json.JSONObject;
 
 import input.components.point.PointNodeDatabase;
 import input.components.segment.SegmentNodeDatabase;
-import utilities.io.StringUtilities;
+import input.visitor.ComponentNodeVisitor;
+import input.visitor.UnparseVisitor;
 
 /**
  * A basic figure consists of points, segments, and an optional description
@@ -41,14 +42,12 @@ public class FigureNode implements ComponentNode {
 
 	@Override
 	public void unparse(StringBuilder sb, int level) {
-		sb.append(StringUtilities.indent(level) + "Figure\n");
-		sb.append(StringUtilities.indent(level) + "{\n");
-		sb.append(StringUtilities.indent(level + 1) + "Description: \"" + _description + "\"\n");
-		sb.append(StringUtilities.indent(level + 1) + "Points:\n");
-		_points.unparse(sb, level + 1);
-		sb.append(StringUtilities.indent(level + 1) + "Segments:\n");
-		_segments.unparse(sb, level + 1);
-		sb.append(StringUtilities.indent(level) + "}\n");
+		new UnparseVisitor(sb).unparse(this, level);
+	}
+
+	@Override
+	public <R, C> R accept(ComponentNodeVisitor<R, C> visitor, C context) {
+		return visitor.visitFigureNode(this, context);
 	}
 
 	public static FigureNode fromJson(Object json) {
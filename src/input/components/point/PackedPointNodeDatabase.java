@@ -0,0 +1,62 @@
+package input.components.point;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A PointNodeDatabase which does not retain PointNode objects.
+ * <p>
+ * Coordinates live only in the parallel double arrays of the grid index and
+ * names in an int-indexed name table, so each point costs a few dozen bytes
+ * instead of a PointNode plus its collection entry. Lookups return a fresh
+ * PointNode view of the stored point; views are equal (but not identical) to
+ * the points that were added.
+ */
+public class PackedPointNodeDatabase extends PointNodeDatabase {
+	private static final int INITIAL_CAPACITY = 16;
+
+	String[] _nameTable;
+
+	/**
+	 * Constructs a new empty PackedPointNodeDatabase.
+	 */
+	public PackedPointNodeDatabase() {
+		super(false);
+		_nameTable = new String[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Constructs a new PackedPointNodeDatabase, inserting all PointNodes in the
+	 * given collection.
+	 *
+	 * @param list List of PointNodes to initialize the database with.
+	 */
+	public PackedPointNodeDatabase(List<PointNode> list) {
+		this();
+		for (PointNode point : list)
+			put(point);
+	}
+
+	@Override
+	void store(int index, PointNode point) {
+		if (index >= _nameTable.length)
+			_nameTable = Arrays.copyOf(_nameTable, Math.max(index + 1, _nameTable.length * 2));
+		_nameTable[index] = point._name;
+	}
+
+	@Override
+	PointNode pointAt(int index) {
+		return new PointNode(_nameTable[index], _grid.getX(index), _grid.getY(index));
+	}
+
+	@Override
+	String nameAt(int index) {
+		return _nameTable[index];
+	}
+
+	public static PackedPointNodeDatabase fromJson(Object json) {
+		PackedPointNodeDatabase points = new PackedPointNodeDatabase();
+		points.putAll(json);
+		return points;
+	}
+}
@@ -0,0 +1,129 @@
+package input.components.point;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A hash index from point names to point indices in a PointNodeDatabase.
+ * <p>
+ * The index stores only the indices of named points in an open-addressed
+ * table; names themselves are read back through the supplied accessor. When
+ * several points share a name, the first one indexed keeps it. Anonymous
+ * (and null) names are never indexed.
+ * <p>
+ * A point which was not stored because an equal point was (see
+ * PointNodeDatabase.put) keeps its name as an alias of the stored point's
+ * index. Aliases are rare, so they are kept in a plain map beside the table.
+ */
+class PointNameIndex {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int EMPTY = -1;
+
+	private final IntFunction<String> _names;
+	private int[] _slots;
+	private int _size;
+
+	// names of points merged into an equal stored point; null if none
+	private Map<String, Integer> _aliases;
+
+	/**
+	 * @param names Accessor for the name of the point at a given index.
+	 */
+	PointNameIndex(IntFunction<String> names) {
+		_names = names;
+		_slots = new int[INITIAL_CAPACITY];
+		Arrays.fill(_slots, EMPTY);
+		_size = 0;
+	}
+
+	/**
+	 * Indexes the point at the given index under its name.
+	 *
+	 * @param index Index of the point.
+	 * @return true if the point was indexed, false if its name is anonymous or
+	 *         already taken by another point.
+	 */
+	boolean add(int index) {
+		String name = _names.apply(index);
+		if (!isIndexable(name))
+			return false;
+
+		int slot = findSlot(name);
+		if (_slots[slot] != EMPTY || (_aliases != null && _aliases.containsKey(name)))
+			return false;
+
+		_slots[slot] = index;
+		if (++_size * 2 > _slots.length)
+			rehash(_slots.length * 2);
+		return true;
+	}
+
+	/**
+	 * Indexes the given name as another name of the point at the given index.
+	 *
+	 * @param name  Name of a point equal to the indexed point.
+	 * @param index Index of the point.
+	 * @return true if the name was indexed, false if it is anonymous or
+	 *         already taken.
+	 */
+	boolean alias(String name, int index) {
+		if (!isIndexable(name) || indexOf(name) != EMPTY)
+			return false;
+
+		if (_aliases == null)
+			_aliases = new HashMap<String, Integer>();
+		_aliases.put(name, index);
+		return true;
+	}
+
+	/**
+	 * @param name Name to locate.
+	 * @return the index of the point with the given name, or -1 if there is none.
+	 */
+	int indexOf(String name) {
+		if (!isIndexable(name))
+			return EMPTY;
+		int index = _slots[findSlot(name)];
+		if (index == EMPTY && _aliases != null)
+			return _aliases.getOrDefault(name, EMPTY);
+		return index;
+	}
+
+	private static boolean isIndexable(String name) {
+		return name != null && !name.equals(PointNode.ANONYMOUS);
+	}
+
+	/**
+	 * Finds the slot holding the given name, or the empty slot where it belongs.
+	 */
+	private int findSlot(String name) {
+		int mask = _slots.length - 1;
+		int slot = hash(name) & mask;
+		while (_slots[slot] != EMPTY && !_names.apply(_slots[slot]).equals(name))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		int[] old = _slots;
+		_slots = new int[capacity];
+		Arrays.fill(_slots, EMPTY);
+
+		for (int index : old) {
+			if (index != EMPTY)
+				_slots[findSlot(_names.apply(index))] = index;
+		}
+	}
+
+	/**
+	 * Spreads the String hash over all bits; names which differ only in their
+	 * last characters, such as P1_2 and P1_3, have String hashes close
+	 * together, which otherwise form long runs of linear probing.
+	 */
+	private static int hash(String name) {
+		int h = name.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
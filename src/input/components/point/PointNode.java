@@ -1,11 +1,21 @@
 package input.components.point;
 
+import java.util.Map;
+import java.util.Set;
+
 import input.components.ComponentNode;
-import utilities.io.StringUtilities;
+import input.visitor.ComponentNodeVisitor;
+import input.visitor.UnparseVisitor;
 import utilities.math.MathUtilities;
 
 /**
  * A 2D Point (x, y).
+ * <p>
+ * Points are equal when both coordinates are equal within
+ * MathUtilities.EPSILON. The hash code is that of the MathUtilities.QUANTUM
+ * cell containing the point, so equal points hash alike unless they straddle a
+ * cell border; getTolerant and containsTolerant cover that case by probing the
+ * neighboring cells.
  *
  * @author Michael Thomas
  * @author Jake Shore
@@ -59,7 +69,18 @@ public class PointNode implements ComponentNode {
 
 	@Override
 	public int hashCode() {
-		return Double.valueOf(_x).hashCode() + Double.valueOf(_y).hashCode();
+		return hash(MathUtilities.quantize(_x), MathUtilities.quantize(_y));
+	}
+
+	/**
+	 * @param cellX quantized x coordinate
+	 * @param cellY quantized y coordinate
+	 * @return the hash code shared by all points in the given cell.
+	 */
+	static int hash(long cellX, long cellY) {
+		long h = cellX * 0x9E3779B97F4A7C15L + cellY;
+		h ^= h >>> 32;
+		return (int) (h ^ (h >>> 16));
 	}
 
 	@Override
@@ -76,6 +97,113 @@ public class PointNode implements ComponentNode {
 				MathUtilities.doubleEquals(_y, other._y);
 	}
 
+	/**
+	 * Looks up the value for a point in a PointNode-keyed hash map, matching any
+	 * key equal to the point even if it lies in a neighboring cell.
+	 * 
+	 * @param map   Map to search.
+	 * @param point Point to locate.
+	 * @return the value of a key equal to the point, or null if there is none.
+	 */
+	public static <V> V getTolerant(Map<PointNode, V> map, PointNode point) {
+		V value = map.get(point);
+		if (value != null || point == null)
+			return value;
+
+		CellProbe probe = new CellProbe(point);
+		while (probe.next()) {
+			value = map.get(probe);
+			if (value != null)
+				return value;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a PointNode hash set contains an element equal to the point,
+	 * even if the element lies in a neighboring cell.
+	 * 
+	 * @param set   Set to search.
+	 * @param point Point to locate.
+	 * @return true if an equal point is present, else false.
+	 */
+	public static boolean containsTolerant(Set<PointNode> set, PointNode point) {
+		if (set.contains(point))
+			return true;
+		if (point == null)
+			return false;
+
+		CellProbe probe = new CellProbe(point);
+		while (probe.next()) {
+			if (set.contains(probe))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A lookup key which hashes as though it were in one of the cells around a
+	 * point (other than the point's own), but compares equal to anything equal
+	 * to the point. Hash-based collections call equals on the key being looked
+	 * up, so the asymmetric equals never escapes a lookup.
+	 */
+	private static final class CellProbe extends PointNode {
+		private final long _ownX;
+		private final long _ownY;
+		private final long _minX;
+		private final long _maxX;
+		private final long _minY;
+		private final long _maxY;
+		private long _cellX;
+		private long _cellY;
+
+		CellProbe(PointNode point) {
+			super(point._name, point._x, point._y);
+			_ownX = MathUtilities.quantize(_x);
+			_ownY = MathUtilities.quantize(_y);
+			_minX = MathUtilities.quantize(_x - MathUtilities.EPSILON);
+			_maxX = MathUtilities.quantize(_x + MathUtilities.EPSILON);
+			_minY = MathUtilities.quantize(_y - MathUtilities.EPSILON);
+			_maxY = MathUtilities.quantize(_y + MathUtilities.EPSILON);
+			_cellX = _minX;
+			_cellY = _minY - 1;
+		}
+
+		/**
+		 * Advances to the next neighboring cell.
+		 * 
+		 * @return false once every neighboring cell has been visited.
+		 */
+		boolean next() {
+			do {
+				if (_cellY != _maxY) {
+					_cellY++;
+				} else if (_cellX != _maxX) {
+					_cellX++;
+					_cellY = _minY;
+				} else {
+					return false;
+				}
+			} while (_cellX == _ownX && _cellY == _ownY);
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash(_cellX, _cellY);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PointNode))
+				return false;
+
+			PointNode other = (PointNode) obj;
+			return MathUtilities.doubleEquals(_x, other._x) &&
+					MathUtilities.doubleEquals(_y, other._y);
+		}
+	}
+
 	@Override
 	public String toString() {
 		String point = "(" + MathUtilities.removeLessEpsilon(_x) + ", " + MathUtilities.removeLessEpsilon(_y) + ")";
@@ -86,6 +214,11 @@ public class PointNode implements ComponentNode {
 
 	@Override
 	public void unparse(StringBuilder sb, int level) {
-		sb.append(StringUtilities.indent(level) + "Point(" + _name + ")" + "(" + _x + ", " + _y + ")\n");
+		new UnparseVisitor(sb).unparse(this, level);
+	}
+
+	@Override
+	public <R, C> R accept(ComponentNodeVisitor<R, C> visitor, C context) {
+		return visitor.visitPointNode(this, context);
 	}
 }
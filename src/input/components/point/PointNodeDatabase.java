@@ -1,18 +1,29 @@
 
 package input.components.point;
 
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import input.components.ComponentNode;
-import utilities.io.StringUtilities;
+import input.visitor.ComponentNodeVisitor;
+import input.visitor.UnparseVisitor;
 
 /**
  * A database of 2D points
+ * <p>
+ * Points are kept in insertion order. Coordinate lookups go through a uniform
+ * grid index (see PointNodeGrid) and name lookups through a hash index (see
+ * PointNameIndex); both take expected constant time. If several points share
+ * a name, the first one added is the one found by name; anonymous points
+ * cannot be found by name at all. A point equal (within epsilon) to one
+ * already stored is not stored again, but its name still finds the stored
+ * point.
  *
  * @author Michael Thomas
  * @author Jake Shore
@@ -22,13 +33,29 @@ import utilities.io.StringUtilities;
  */
 public class PointNodeDatabase implements ComponentNode {
 
-	Set<PointNode> _points;
+	List<PointNode> _points;
+	PointNodeGrid _grid;
+	PointNameIndex _names;
+	PointNodeKDTree _tree;
 
 	/**
 	 * Constructs a new empty PointNodeDatabase.
 	 */
 	public PointNodeDatabase() {
-		_points = new LinkedHashSet<>();
+		this(true);
+	}
+
+	/**
+	 * Constructs a new empty PointNodeDatabase.
+	 * 
+	 * @param keepPoints false for a subclass which overrides store, pointAt and
+	 *                   nameAt to keep its points elsewhere, and so needs no
+	 *                   list of PointNodes.
+	 */
+	protected PointNodeDatabase(boolean keepPoints) {
+		_points = keepPoints ? new ArrayList<>() : null;
+		_grid = new PointNodeGrid();
+		_names = new PointNameIndex(this::nameAt);
 	}
 
 	/**
@@ -38,16 +65,40 @@ public class PointNodeDatabase implements ComponentNode {
 	 * @param list List of PointNodes to initialize the database with.
 	 */
 	public PointNodeDatabase(List<PointNode> list) {
-		_points = new LinkedHashSet<>(list);
+		this();
+		for (PointNode point : list)
+			put(point);
 	}
 
 	/**
-	 * Adds the given point to the database.
+	 * Adds the given point to the database, unless a point with the same
+	 * coordinates is already present; then the point's name, unless taken,
+	 * becomes another name of the present point. Null is ignored.
 	 * 
 	 * @param point Point to add.
 	 */
 	public void put(PointNode point) {
-		_points.add(point);
+		if (point == null)
+			return;
+
+		int present = indexOf(point);
+		if (present != -1) {
+			_names.alias(point._name, present);
+			return;
+		}
+
+		int index = _grid.add(point.getX(), point.getY());
+		store(index, point);
+		_names.add(index);
+		if (_tree != null)
+			_tree.insert(index);
+	}
+
+	/**
+	 * @return the number of points in the database.
+	 */
+	public int size() {
+		return _grid.size();
 	}
 
 	/**
@@ -57,7 +108,7 @@ public class PointNodeDatabase implements ComponentNode {
 	 * @return true if the point is present, else false.
 	 */
 	public boolean contains(PointNode point) {
-		return _points.contains(point);
+		return indexOf(point) != -1;
 	}
 
 	/**
@@ -68,7 +119,7 @@ public class PointNodeDatabase implements ComponentNode {
 	 * @return true if the point is present, else false.
 	 */
 	public boolean contains(double x, double y) {
-		return _points.contains(new PointNode(x, y));
+		return _grid.indexOf(x, y) != -1;
 	}
 
 	/**
@@ -93,22 +144,21 @@ public class PointNodeDatabase implements ComponentNode {
 	 *         null.
 	 */
 	public String getName(double x, double y) {
-		return getName(new PointNode(x, y));
+		PointNode found = getPoint(x, y);
+		return found != null ? found._name : null;
 	}
 
 	/**
 	 * Gets the point in the database with the given name.
 	 * 
 	 * @param name Name to locate.
-	 * @return the point whose name is equal to the given name if such a point
-	 *         exists, else null.
+	 * @return the first point added with the given name (or the stored point
+	 *         it was equal to) if such a point exists and the name is not
+	 *         anonymous, else null.
 	 */
 	public PointNode getPoint(String name) {
-		for (PointNode p : _points) {
-			if (p.getName().equals(name))
-				return p;
-		}
-		return null;
+		int index = _names.indexOf(name);
+		return index != -1 ? pointAt(index) : null;
 	}
 
 	/**
@@ -119,11 +169,8 @@ public class PointNodeDatabase implements ComponentNode {
 	 *         else null.
 	 */
 	public PointNode getPoint(PointNode point) {
-		for (PointNode p : _points) {
-			if (p.equals(point))
-				return p;
-		}
-		return null;
+		int index = indexOf(point);
+		return index != -1 ? pointAt(index) : null;
 	}
 
 	/**
@@ -135,20 +182,159 @@ public class PointNodeDatabase implements ComponentNode {
 	 *         null.
 	 */
 	public PointNode getPoint(double x, double y) {
-		return getPoint(new PointNode(x, y));
+		int index = _grid.indexOf(x, y);
+		return index != -1 ? pointAt(index) : null;
+	}
+
+	/**
+	 * Finds the point in the database closest to the given coordinates.
+	 * 
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return the closest point, or null if the database is empty.
+	 */
+	public PointNode nearest(double x, double y) {
+		int[] found = tree().nearest(x, y, 1);
+		return found.length > 0 ? pointAt(found[0]) : null;
+	}
+
+	/**
+	 * Finds the k points in the database closest to the given coordinates.
+	 * 
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param k number of points to find
+	 * @return the (at most) k closest points, closest first.
+	 */
+	public List<PointNode> kNearest(double x, double y, int k) {
+		List<PointNode> points = new ArrayList<>();
+		for (int index : tree().nearest(x, y, k))
+			points.add(pointAt(index));
+		return points;
+	}
+
+	/**
+	 * Finds every point in the database within the given distance of the given
+	 * coordinates.
+	 * 
+	 * @param x      coordinate
+	 * @param y      coordinate
+	 * @param radius maximum distance (inclusive)
+	 * @return the points found, in no particular order.
+	 */
+	public List<PointNode> withinRadius(double x, double y, double radius) {
+		List<PointNode> points = new ArrayList<>();
+		tree().withinRadius(x, y, radius, index -> points.add(pointAt(index)));
+		return points;
+	}
+
+	/**
+	 * Finds every point in the database inside the given axis-aligned box.
+	 * 
+	 * @param minX lower x bound (inclusive)
+	 * @param minY lower y bound (inclusive)
+	 * @param maxX upper x bound (inclusive)
+	 * @param maxY upper y bound (inclusive)
+	 * @return the points found, in no particular order.
+	 */
+	public List<PointNode> withinBox(double minX, double minY, double maxX, double maxY) {
+		List<PointNode> points = new ArrayList<>();
+		tree().withinBox(minX, minY, maxX, maxY, index -> points.add(pointAt(index)));
+		return points;
+	}
+
+	/**
+	 * @return the KD-tree over the points, building it on first use and
+	 *         rebuilding it once put has unbalanced it.
+	 */
+	private PointNodeKDTree tree() {
+		if (_tree == null || _tree.needsRebuild())
+			_tree = new PointNodeKDTree(_grid);
+		return _tree;
+	}
+
+	/**
+	 * Locates the earliest inserted point equal to the given point. Insertion
+	 * indices are the positions of the points in forEachPoint and pointStream.
+	 * 
+	 * @param point Point to locate.
+	 * @return the insertion index of the point if present, else -1.
+	 */
+	public int indexOf(PointNode point) {
+		if (point == null)
+			return -1;
+		return _grid.indexOf(point.getX(), point.getY());
+	}
+
+	/**
+	 * Records a newly added point; its coordinates are already in the grid.
+	 * 
+	 * @param index Insertion index the grid gave the point.
+	 * @param point Point being added.
+	 */
+	void store(int index, PointNode point) {
+		_points.add(point);
+	}
+
+	/**
+	 * @param index Insertion index of a point.
+	 * @return the point at the given index.
+	 */
+	PointNode pointAt(int index) {
+		return _points.get(index);
+	}
+
+	/**
+	 * @param index Insertion index of a point.
+	 * @return the name of the point at the given index.
+	 */
+	String nameAt(int index) {
+		return _points.get(index)._name;
+	}
+
+	/**
+	 * Passes each point to the consumer, in insertion order.
+	 * 
+	 * @param consumer receives each point
+	 */
+	public void forEachPoint(Consumer<PointNode> consumer) {
+		for (int i = 0; i < size(); i++)
+			consumer.accept(pointAt(i));
+	}
+
+	/**
+	 * A lazy view of the points, in insertion order. It splits evenly when run
+	 * in parallel; the database must not be changed while the stream runs.
+	 * 
+	 * @return stream of the points
+	 */
+	public Stream<PointNode> pointStream() {
+		return IntStream.range(0, size()).mapToObj(this::pointAt);
 	}
 
 	@Override
 	public void unparse(StringBuilder sb, int level) {
-		sb.append(StringUtilities.indent(level) + "{\n");
-		for (PointNode point : _points)
-			point.unparse(sb, level + 1);
-		sb.append(StringUtilities.indent(level) + "}\n");
+		new UnparseVisitor(sb).unparse(this, level);
+	}
+
+	@Override
+	public <R, C> R accept(ComponentNodeVisitor<R, C> visitor, C context) {
+		return visitor.visitPointNodeDatabase(this, context);
 	}
 
 	public static PointNodeDatabase fromJson(Object json) {
-		JSONArray JSONpoints = (JSONArray) json;
 		PointNodeDatabase points = new PointNodeDatabase();
+		points.putAll(json);
+		return points;
+	}
+
+	/**
+	 * Adds every point in the given JSON array of points to the database.
+	 * 
+	 * @param json JSONArray of points.
+	 */
+	void putAll(Object json) {
+		JSONArray JSONpoints = (JSONArray) json;
 
 		for (Object pointObj : JSONpoints) {
 			JSONObject JSONpoint = (JSONObject) pointObj;
@@ -156,10 +342,8 @@ public class PointNodeDatabase implements ComponentNode {
 					JSONpoint.getString("name"),
 					JSONpoint.getDouble("x"),
 					JSONpoint.getDouble("y"));
-			points.put(point);
+			put(point);
 		}
-
-		return points;
 	}
 
 }
@@ -0,0 +1,151 @@
+package input.components.point;
+
+import java.util.Arrays;
+
+import utilities.math.MathUtilities;
+
+/**
+ * A uniform grid over the coordinates of the points in a PointNodeDatabase
+ * (and in a FrozenSegmentNodeDatabase), holding only primitive arrays.
+ * <p>
+ * Points are identified by their insertion index. Each grid cell is
+ * MathUtilities.QUANTUM wide, so the points tolerance-equal to a coordinate
+ * pair can only live in the few (usually four) cells overlapping its epsilon
+ * window. Cells are kept in an open-addressed table holding the index of the
+ * most recently added point in the cell; the remaining points of a cell are
+ * chained through _next.
+ */
+public class PointNodeGrid {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int EMPTY = -1;
+
+	private double[] _xs;
+	private double[] _ys;
+	private int[] _next;
+	private int _size;
+
+	private int[] _cells;
+	private int _numCells;
+
+	public PointNodeGrid() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param capacity number of points to make room for before growing
+	 */
+	public PointNodeGrid(int capacity) {
+		capacity = Math.max(capacity, INITIAL_CAPACITY);
+		_xs = new double[capacity];
+		_ys = new double[capacity];
+		_next = new int[capacity];
+		_size = 0;
+
+		_cells = new int[INITIAL_CAPACITY];
+		Arrays.fill(_cells, EMPTY);
+		_numCells = 0;
+	}
+
+	/**
+	 * @return the number of points in the grid.
+	 */
+	public int size() {
+		return _size;
+	}
+
+	public double getX(int index) {
+		return _xs[index];
+	}
+
+	public double getY(int index) {
+		return _ys[index];
+	}
+
+	/**
+	 * Adds a point to the grid.
+	 *
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return the index assigned to the point.
+	 */
+	public int add(double x, double y) {
+		if (_size == _xs.length) {
+			int capacity = _size * 2;
+			_xs = Arrays.copyOf(_xs, capacity);
+			_ys = Arrays.copyOf(_ys, capacity);
+			_next = Arrays.copyOf(_next, capacity);
+		}
+
+		int index = _size++;
+		_xs[index] = x;
+		_ys[index] = y;
+
+		int slot = findSlot(MathUtilities.quantize(x), MathUtilities.quantize(y));
+		_next[index] = _cells[slot];
+		_cells[slot] = index;
+
+		if (_next[index] == EMPTY && ++_numCells * 2 > _cells.length)
+			rehash(_cells.length * 2);
+
+		return index;
+	}
+
+	/**
+	 * Locates the earliest added point equal (within MathUtilities.EPSILON) to
+	 * the given coordinates.
+	 *
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return the index of the point if present, else -1.
+	 */
+	public int indexOf(double x, double y) {
+		long minCellX = MathUtilities.quantize(x - MathUtilities.EPSILON);
+		long maxCellX = MathUtilities.quantize(x + MathUtilities.EPSILON);
+		long minCellY = MathUtilities.quantize(y - MathUtilities.EPSILON);
+		long maxCellY = MathUtilities.quantize(y + MathUtilities.EPSILON);
+
+		int found = EMPTY;
+		// loops are written to terminate even when a bound is Long.MAX_VALUE
+		for (long cellX = minCellX;; cellX++) {
+			for (long cellY = minCellY;; cellY++) {
+				for (int i = _cells[findSlot(cellX, cellY)]; i != EMPTY; i = _next[i]) {
+					if ((found == EMPTY || i < found) &&
+							MathUtilities.doubleEquals(_xs[i], x) &&
+							MathUtilities.doubleEquals(_ys[i], y))
+						found = i;
+				}
+				if (cellY == maxCellY)
+					break;
+			}
+			if (cellX == maxCellX)
+				break;
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the slot of the given cell, or the empty slot where it belongs.
+	 */
+	private int findSlot(long cellX, long cellY) {
+		int mask = _cells.length - 1;
+		int slot = PointNode.hash(cellX, cellY) & mask;
+		while (_cells[slot] != EMPTY) {
+			int head = _cells[slot];
+			if (MathUtilities.quantize(_xs[head]) == cellX && MathUtilities.quantize(_ys[head]) == cellY)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		int[] old = _cells;
+		_cells = new int[capacity];
+		Arrays.fill(_cells, EMPTY);
+
+		for (int head : old) {
+			if (head != EMPTY)
+				_cells[findSlot(MathUtilities.quantize(_xs[head]), MathUtilities.quantize(_ys[head]))] = head;
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package input.components.point;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A 2D tree over the points of a PointNodeDatabase, used for nearest neighbor
+ * and range queries.
+ * <p>
+ * Every point is a node, identified by its index in the grid which also holds
+ * its coordinates. Nodes split on x at even depths and on y at odd depths;
+ * points equal to a node's splitting coordinate may end up on either side.
+ * The tree is bulk-built around medians in O(n log n) and then extended one
+ * point at a time; once as many points have been inserted as were bulk-built,
+ * the tree asks to be rebuilt so that it stays balanced.
+ */
+class PointNodeKDTree {
+	private static final int NONE = -1;
+
+	private final PointNodeGrid _grid;
+	private int[] _left;
+	private int[] _right;
+	private int _root;
+	private int _size;
+	private int _builtSize;
+
+	/**
+	 * Bulk-builds a tree over every point currently in the grid.
+	 *
+	 * @param grid Grid holding the point coordinates.
+	 */
+	PointNodeKDTree(PointNodeGrid grid) {
+		_grid = grid;
+		_size = grid.size();
+		_builtSize = _size;
+		_left = new int[Math.max(_size, 1)];
+		_right = new int[Math.max(_size, 1)];
+
+		int[] indices = new int[_size];
+		for (int i = 0; i < _size; i++)
+			indices[i] = i;
+		_root = build(indices, 0, _size, 0);
+	}
+
+	/**
+	 * @return true if enough points were inserted since the bulk build that the
+	 *         tree should be rebuilt.
+	 */
+	boolean needsRebuild() {
+		return _size - _builtSize > Math.max(_builtSize, 16);
+	}
+
+	/**
+	 * Inserts the point with the given grid index into the tree.
+	 *
+	 * @param index Grid index of the point.
+	 */
+	void insert(int index) {
+		if (index >= _left.length) {
+			int capacity = Math.max(index + 1, _left.length * 2);
+			_left = Arrays.copyOf(_left, capacity);
+			_right = Arrays.copyOf(_right, capacity);
+		}
+		_left[index] = NONE;
+		_right[index] = NONE;
+		_size++;
+
+		if (_root == NONE) {
+			_root = index;
+			return;
+		}
+
+		int node = _root;
+		for (int depth = 0;; depth++) {
+			if (coordinate(index, depth) < coordinate(node, depth)) {
+				if (_left[node] == NONE) {
+					_left[node] = index;
+					return;
+				}
+				node = _left[node];
+			} else {
+				if (_right[node] == NONE) {
+					_right[node] = index;
+					return;
+				}
+				node = _right[node];
+			}
+		}
+	}
+
+	/**
+	 * Finds the k points closest to (x, y).
+	 *
+	 * @return grid indices of the points, closest first.
+	 */
+	int[] nearest(double x, double y, int k) {
+		k = Math.min(k, _size);
+		if (k <= 0)
+			return new int[0];
+
+		// max-heap of the best k candidates found so far
+		int[] heap = new int[k];
+		double[] heapDistances = new double[k];
+		int count = 0;
+
+		int[] nodes = new int[16];
+		int[] depths = new int[16];
+		double[] bounds = new double[16];
+		nodes[0] = _root;
+		depths[0] = 0;
+		bounds[0] = 0;
+		int top = 1;
+
+		while (top > 0) {
+			top--;
+			int node = nodes[top];
+			int depth = depths[top];
+			double bound = bounds[top];
+			if (count == k && bound >= heapDistances[0])
+				continue;
+
+			double dx = _grid.getX(node) - x;
+			double dy = _grid.getY(node) - y;
+			double distance = dx * dx + dy * dy;
+			if (count < k) {
+				heap[count] = node;
+				heapDistances[count] = distance;
+				siftUp(heap, heapDistances, count++);
+			} else if (distance < heapDistances[0]) {
+				heap[0] = node;
+				heapDistances[0] = distance;
+				siftDown(heap, heapDistances, 0, count);
+			}
+
+			double diff = (depth % 2 == 0 ? x : y) - coordinate(node, depth);
+			int near = diff < 0 ? _left[node] : _right[node];
+			int far = diff < 0 ? _right[node] : _left[node];
+
+			if (top + 2 > nodes.length) {
+				nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				depths = Arrays.copyOf(depths, depths.length * 2);
+				bounds = Arrays.copyOf(bounds, bounds.length * 2);
+			}
+			// the far side is pushed first so that the near side is searched first
+			if (far != NONE) {
+				nodes[top] = far;
+				depths[top] = depth + 1;
+				bounds[top++] = Math.max(bound, diff * diff);
+			}
+			if (near != NONE) {
+				nodes[top] = near;
+				depths[top] = depth + 1;
+				bounds[top++] = bound;
+			}
+		}
+
+		// pop the heap from the back to sort closest first
+		int[] result = new int[count];
+		for (int i = count - 1; i >= 0; i--) {
+			result[i] = heap[0];
+			heap[0] = heap[i];
+			heapDistances[0] = heapDistances[i];
+			siftDown(heap, heapDistances, 0, i);
+		}
+		return result;
+	}
+
+	/**
+	 * Passes every point within the given distance of (x, y) to the consumer.
+	 */
+	void withinRadius(double x, double y, double radius, IntConsumer consumer) {
+		double radiusSquared = radius * radius;
+		search(x - radius, y - radius, x + radius, y + radius, index -> {
+			double dx = _grid.getX(index) - x;
+			double dy = _grid.getY(index) - y;
+			if (dx * dx + dy * dy <= radiusSquared)
+				consumer.accept(index);
+		});
+	}
+
+	/**
+	 * Passes every point inside the given axis-aligned box to the consumer.
+	 */
+	void withinBox(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+		search(minX, minY, maxX, maxY, consumer);
+	}
+
+	private void search(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+		if (_root == NONE)
+			return;
+
+		int[] nodes = new int[16];
+		int[] depths = new int[16];
+		nodes[0] = _root;
+		depths[0] = 0;
+		int top = 1;
+
+		while (top > 0) {
+			top--;
+			int node = nodes[top];
+			int depth = depths[top];
+
+			double x = _grid.getX(node);
+			double y = _grid.getY(node);
+			if (x >= minX && x <= maxX && y >= minY && y <= maxY)
+				consumer.accept(node);
+
+			double split = coordinate(node, depth);
+			boolean visitLeft = _left[node] != NONE && (depth % 2 == 0 ? minX : minY) <= split;
+			boolean visitRight = _right[node] != NONE && (depth % 2 == 0 ? maxX : maxY) >= split;
+
+			if (top + 2 > nodes.length) {
+				nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				depths = Arrays.copyOf(depths, depths.length * 2);
+			}
+			if (visitLeft) {
+				nodes[top] = _left[node];
+				depths[top++] = depth + 1;
+			}
+			if (visitRight) {
+				nodes[top] = _right[node];
+				depths[top++] = depth + 1;
+			}
+		}
+	}
+
+	private double coordinate(int index, int depth) {
+		return depth % 2 == 0 ? _grid.getX(index) : _grid.getY(index);
+	}
+
+	/**
+	 * Builds a subtree over indices[from, to), placing its median at the root.
+	 *
+	 * @return the root of the subtree.
+	 */
+	private int build(int[] indices, int from, int to, int depth) {
+		if (from >= to)
+			return NONE;
+
+		int mid = (from + to) >>> 1;
+		select(indices, from, to - 1, mid, depth);
+
+		int node = indices[mid];
+		_left[node] = build(indices, from, mid, depth + 1);
+		_right[node] = build(indices, mid + 1, to, depth + 1);
+		return node;
+	}
+
+	/**
+	 * Partially sorts indices[lo, hi] so that position k holds the element that
+	 * would be there if the range were sorted by the depth's coordinate.
+	 */
+	private void select(int[] indices, int lo, int hi, int k, int depth) {
+		while (lo < hi) {
+			double pivot = coordinate(indices[(lo + hi) >>> 1], depth);
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (coordinate(indices[i], depth) < pivot)
+					i++;
+				while (coordinate(indices[j], depth) > pivot)
+					j--;
+				if (i <= j) {
+					int swap = indices[i];
+					indices[i++] = indices[j];
+					indices[j--] = swap;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	private static void siftUp(int[] heap, double[] distances, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (distances[parent] >= distances[i])
+				return;
+			swap(heap, distances, i, parent);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heap, double[] distances, int i, int size) {
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && distances[child + 1] > distances[child])
+				child++;
+			if (distances[i] >= distances[child])
+				return;
+			swap(heap, distances, i, child);
+			i = child;
+		}
+	}
+
+	private static void swap(int[] heap, double[] distances, int i, int j) {
+		int index = heap[i];
+		heap[i] = heap[j];
+		heap[j] = index;
+
+		double distance = distances[i];
+		distances[i] = distances[j];
+		distances[j] = distance;
+	}
+}
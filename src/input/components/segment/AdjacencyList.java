@@ -0,0 +1,37 @@
+package input.components.segment;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import input.components.point.PointNode;
+
+/**
+ * The adjacency list of one point in a SegmentNodeDatabase.
+ * <p>
+ * The list remembers the point it belongs to, so that a lookup by any equal
+ * point can recover the stored instance, and its id, the number of lists
+ * created before it in the same database.
+ */
+class AdjacencyList {
+	final PointNode _point;
+	final int _id;
+	final Set<PointNode> _neighbors;
+
+	AdjacencyList(PointNode point, int id) {
+		_point = point;
+		_id = id;
+		_neighbors = new LinkedHashSet<PointNode>();
+	}
+
+	/**
+	 * Adds a neighbor unless an equal point is already present.
+	 *
+	 * @param point
+	 * @return true if the neighbor was added, else false.
+	 */
+	boolean add(PointNode point) {
+		if (PointNode.containsTolerant(_neighbors, point))
+			return false;
+		return _neighbors.add(point);
+	}
+}
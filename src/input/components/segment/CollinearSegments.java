@@ -0,0 +1,332 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import utilities.math.MathUtilities;
+
+/**
+ * Groups the segments of a SegmentNodeDatabase by the line they lie on, so
+ * that collinear segments which overlap or meet end to end can be merged into
+ * maximal segments, or split wherever another of their points lies inside
+ * them.
+ * <p>
+ * Each segment is given a direction, pointing up (or right, if it is within
+ * EPSILON of horizontal), and so an angle in about [0, pi). Segments are
+ * sorted by angle and cut into runs of nearly equal angle; within a run, they
+ * are sorted by their distance from the origin, measured across the run's
+ * first direction, and cut into lines. A segment whose ends are not both within
+ * EPSILON of the same such line is left on a line of its own. Along each line
+ * segments are sorted by where they start. Every step is a sort or a linear
+ * pass, so grouping takes O(E log E).
+ */
+class CollinearSegments {
+	private static final double EPSILON = MathUtilities.EPSILON;
+
+	/**
+	 * A segment placed on its line, with its ends ordered along it.
+	 */
+	private static class Piece {
+		final PointNode _start;
+		final PointNode _end;
+		final double _angle;
+		double _offset;
+		double _t1;
+		double _t2;
+
+		Piece(PointNode start, PointNode end, double angle) {
+			_start = start;
+			_end = end;
+			_angle = angle;
+		}
+	}
+
+	/**
+	 * Segments on one line; _ux, _uy is the line's direction and _offset its
+	 * distance from the origin across it.
+	 */
+	private static class Line {
+		final double _ux;
+		final double _uy;
+		final double _offset;
+		final List<Piece> _pieces;
+
+		Line(double ux, double uy, double offset) {
+			_ux = ux;
+			_uy = uy;
+			_offset = offset;
+			_pieces = new ArrayList<Piece>();
+		}
+
+		double along(PointNode point) {
+			return _ux * point.getX() + _uy * point.getY();
+		}
+
+		double across(PointNode point) {
+			return -_uy * point.getX() + _ux * point.getY();
+		}
+	}
+
+	/**
+	 * A point where a line is cut, at distance _t along it.
+	 */
+	private static class Cut {
+		final PointNode _point;
+		final double _t;
+
+		Cut(PointNode point, double t) {
+			_point = point;
+			_t = t;
+		}
+	}
+
+	private final List<Line> _lines;
+
+	// segments too short to have a direction
+	private final List<SegmentNode> _degenerate;
+
+	CollinearSegments(SegmentNodeDatabase segments) {
+		_lines = new ArrayList<Line>();
+		_degenerate = new ArrayList<SegmentNode>();
+
+		List<Piece> pieces = new ArrayList<Piece>();
+		segments.forEachUniqueSegment((from, to) -> {
+			double dx = to.getX() - from.getX();
+			double dy = to.getY() - from.getY();
+			double length = Math.hypot(dx, dy);
+			if (length < EPSILON) {
+				_degenerate.add(new SegmentNode(from, to));
+				return;
+			}
+			boolean horizontal = Math.abs(dy) < EPSILON * length;
+			boolean flip = horizontal ? dx < 0 : dy < 0;
+			pieces.add(flip ? new Piece(to, from, Math.atan2(-dy, -dx)) : new Piece(from, to, Math.atan2(dy, dx)));
+		});
+		pieces.sort(Comparator.comparingDouble(piece -> piece._angle));
+
+		int runStart = 0;
+		for (int i = 1; i <= pieces.size(); i++) {
+			if (i == pieces.size() || pieces.get(i)._angle - pieces.get(runStart)._angle > EPSILON) {
+				groupRun(pieces.subList(runStart, i));
+				runStart = i;
+			}
+		}
+
+		for (Line line : _lines)
+			line._pieces.sort(Comparator.comparingDouble(piece -> piece._t1));
+	}
+
+	/**
+	 * Cuts a run of pieces of nearly the same angle into lines.
+	 */
+	private void groupRun(List<Piece> run) {
+		Piece first = run.get(0);
+		double length = Math.hypot(first._end.getX() - first._start.getX(), first._end.getY() - first._start.getY());
+		double ux = (first._end.getX() - first._start.getX()) / length;
+		double uy = (first._end.getY() - first._start.getY()) / length;
+
+		List<Piece> parallel = new ArrayList<Piece>();
+		for (Piece piece : run) {
+			double offset = -uy * piece._start.getX() + ux * piece._start.getY();
+			double endOffset = -uy * piece._end.getX() + ux * piece._end.getY();
+			// the orientation test: both ends on one line of this direction
+			if (Math.abs(endOffset - offset) < EPSILON) {
+				piece._offset = offset;
+				parallel.add(piece);
+			} else {
+				Line line = lineThrough(piece);
+				place(line, piece);
+				_lines.add(line);
+			}
+		}
+		parallel.sort(Comparator.comparingDouble(piece -> piece._offset));
+
+		Line line = null;
+		for (Piece piece : parallel) {
+			if (line == null || piece._offset - line._offset >= EPSILON) {
+				line = new Line(ux, uy, piece._offset);
+				_lines.add(line);
+			}
+			place(line, piece);
+		}
+	}
+
+	private static Line lineThrough(Piece piece) {
+		double dx = piece._end.getX() - piece._start.getX();
+		double dy = piece._end.getY() - piece._start.getY();
+		double length = Math.hypot(dx, dy);
+		double ux = dx / length;
+		double uy = dy / length;
+		return new Line(ux, uy, -uy * piece._start.getX() + ux * piece._start.getY());
+	}
+
+	private static void place(Line line, Piece piece) {
+		piece._t1 = line.along(piece._start);
+		piece._t2 = line.along(piece._end);
+		line._pieces.add(piece);
+	}
+
+	/**
+	 * Replaces each maximal run of segments on a line which overlap or meet
+	 * end to end with one segment from the run's first point to its last.
+	 *
+	 * @return a new database of the merged segments
+	 */
+	SegmentNodeDatabase merge() {
+		SegmentNodeDatabase merged = new SegmentNodeDatabase();
+		for (Line line : _lines) {
+			Piece first = line._pieces.get(0);
+			PointNode start = first._start;
+			PointNode end = first._end;
+			double reach = first._t2;
+			for (Piece piece : line._pieces) {
+				if (piece._t1 > reach + EPSILON) {
+					merged.addUndirectedEdge(start, end);
+					start = piece._start;
+					end = piece._end;
+					reach = piece._t2;
+				} else if (piece._t2 > reach) {
+					end = piece._end;
+					reach = piece._t2;
+				}
+			}
+			merged.addUndirectedEdge(start, end);
+		}
+		for (SegmentNode segment : _degenerate)
+			merged.addUndirectedEdge(segment.getPoint1(), segment.getPoint2());
+		return merged;
+	}
+
+	/**
+	 * Splits each segment at every endpoint of another segment on its line,
+	 * and at every point of the given database, lying inside it; overlapping
+	 * segments leave a single copy of their shared pieces.
+	 *
+	 * @param points if not null, the database of further points to split at
+	 * @return a new database of the pieces
+	 */
+	SegmentNodeDatabase split(PointNodeDatabase points) {
+		double spacing = points == null ? 0 : spacing(points);
+		SegmentNodeDatabase split = new SegmentNodeDatabase();
+		for (Line line : _lines) {
+			List<Cut> cuts = cuts(line, points, spacing);
+			for (Piece piece : line._pieces) {
+				PointNode previous = piece._start;
+				for (int i = firstCut(cuts, piece._t1 + EPSILON); i < cuts.size()
+						&& cuts.get(i)._t < piece._t2 - EPSILON; i++) {
+					split.addUndirectedEdge(previous, cuts.get(i)._point);
+					previous = cuts.get(i)._point;
+				}
+				split.addUndirectedEdge(previous, piece._end);
+			}
+		}
+		for (SegmentNode segment : _degenerate)
+			split.addUndirectedEdge(segment.getPoint1(), segment.getPoint2());
+		return split;
+	}
+
+	/**
+	 * @return the side of the figure's bounding box over the square root of
+	 *         its number of points: about the distance between neighbouring
+	 *         points, were they spread evenly.
+	 */
+	private static double spacing(PointNodeDatabase points) {
+		if (points.size() == 0)
+			return 0;
+		double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		points.forEachPoint(point -> {
+			box[0] = Math.min(box[0], point.getX());
+			box[1] = Math.min(box[1], point.getY());
+			box[2] = Math.max(box[2], point.getX());
+			box[3] = Math.max(box[3], point.getY());
+		});
+		return Math.max(box[2] - box[0], box[3] - box[1]) / Math.sqrt(points.size());
+	}
+
+	/**
+	 * @return the points at which the line's segments are cut, ordered along
+	 *         it, each once.
+	 */
+	private static List<Cut> cuts(Line line, PointNodeDatabase points, double spacing) {
+		List<Cut> cuts = new ArrayList<Cut>();
+		for (Piece piece : line._pieces) {
+			cuts.add(new Cut(piece._start, piece._t1));
+			cuts.add(new Cut(piece._end, piece._t2));
+		}
+
+		if (points != null) {
+			// query along each run of overlapping segments for points on the
+			// line
+			int runStart = 0;
+			double reach = line._pieces.get(0)._t2;
+			for (int i = 1; i <= line._pieces.size(); i++) {
+				if (i == line._pieces.size() || line._pieces.get(i)._t1 > reach + EPSILON) {
+					addPointsOn(line, line._pieces.get(runStart)._t1, reach, points, spacing, cuts);
+					runStart = i;
+					if (i < line._pieces.size())
+						reach = line._pieces.get(i)._t2;
+				} else
+					reach = Math.max(reach, line._pieces.get(i)._t2);
+			}
+		}
+
+		cuts.sort(Comparator.comparingDouble(cut -> cut._t));
+		List<Cut> unique = new ArrayList<Cut>();
+		for (Cut cut : cuts) {
+			if (unique.isEmpty() || cut._t - unique.get(unique.size() - 1)._t >= EPSILON)
+				unique.add(cut);
+		}
+		return unique;
+	}
+
+	/**
+	 * Adds the points of the database strictly between from and to on the
+	 * line. The box around a slanted stretch of the line is as thick as the
+	 * stretch is long times the smaller of the direction's components, so the
+	 * run is queried in stretches whose boxes are about one point spacing
+	 * thick; each point is kept by the stretch its t falls in.
+	 */
+	private static void addPointsOn(Line line, double from, double to, PointNodeDatabase points, double spacing,
+			List<Cut> cuts) {
+		double slant = Math.min(Math.abs(line._ux), Math.abs(line._uy));
+		// more stretches than points would not make the queries any cheaper
+		int stretches = 1;
+		if (slant > 0 && spacing > 0)
+			stretches = (int) Math.min(Math.ceil((to - from) * slant / spacing), points.size());
+		for (int i = 0; i < stretches; i++) {
+			double start = from + (to - from) * i / stretches;
+			double end = i == stretches - 1 ? to : from + (to - from) * (i + 1) / stretches;
+			double x1 = line._ux * start - line._uy * line._offset;
+			double y1 = line._uy * start + line._ux * line._offset;
+			double x2 = line._ux * end - line._uy * line._offset;
+			double y2 = line._uy * end + line._ux * line._offset;
+			for (PointNode point : points.withinBox(Math.min(x1, x2) - EPSILON, Math.min(y1, y2) - EPSILON,
+					Math.max(x1, x2) + EPSILON, Math.max(y1, y2) + EPSILON)) {
+				double t = line.along(point);
+				if (Math.abs(line.across(point) - line._offset) < EPSILON && t > from && t < to && t >= start
+						&& (t < end || end == to))
+					cuts.add(new Cut(point, t));
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the first cut at or after t.
+	 */
+	private static int firstCut(List<Cut> cuts, double t) {
+		int lo = 0;
+		int hi = cuts.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cuts.get(mid)._t < t)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
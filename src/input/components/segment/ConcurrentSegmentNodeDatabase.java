@@ -0,0 +1,271 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import input.components.point.PointNode;
+
+/**
+ * A SegmentNodeDatabase which several threads may add edges to and read from
+ * at once.
+ * <p>
+ * Each adjacency list is guarded by one of a fixed number of striped
+ * read/write locks. Adding an undirected edge write-locks the stripes of both
+ * endpoints, always in stripe order, so both directions appear together.
+ * Reads of the whole database hold every stripe's read lock and therefore see
+ * no edge half-added. Looking a point up takes no lock; creating its
+ * adjacency list takes a short creation lock. The spatial index and the
+ * connected components share a lock of their own, taken by writers adding a
+ * segment to them and by queries, which may build them.
+ * <p>
+ * Consumers passed to forEachEdge, forEachUniqueSegment and forEachAdjacencyList
+ * run with the read locks held and must not add edges. The stream and Iterable
+ * views cannot hold the locks while they are consumed, so here they are views
+ * of a snapshot taken when they are created.
+ */
+public class ConcurrentSegmentNodeDatabase extends SegmentNodeDatabase {
+	private static final int DEFAULT_STRIPES = 64;
+
+	private final ReentrantReadWriteLock[] _stripes;
+
+	// guards creating adjacency lists and _order
+	private final ReentrantLock _creationLock;
+	private final List<AdjacencyList> _order;
+
+	private final AtomicInteger _undirectedEdgeCount;
+
+	// guards _tree and _connectivity
+	private final ReentrantLock _indexLock;
+
+	/**
+	 * Constructs a new empty database with the default number of lock stripes.
+	 */
+	public ConcurrentSegmentNodeDatabase() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripes number of locks the adjacency lists are spread over
+	 */
+	public ConcurrentSegmentNodeDatabase(int stripes) {
+		_adjLists = new ConcurrentHashMap<PointNode, AdjacencyList>();
+		_stripes = new ReentrantReadWriteLock[stripes];
+		for (int i = 0; i < stripes; i++)
+			_stripes[i] = new ReentrantReadWriteLock();
+		_creationLock = new ReentrantLock();
+		_order = new ArrayList<AdjacencyList>();
+		_undirectedEdgeCount = new AtomicInteger();
+		_indexLock = new ReentrantLock();
+	}
+
+	@Override
+	public int numUndirectedEdges() {
+		return _undirectedEdgeCount.get();
+	}
+
+	@Override
+	AdjacencyList adjacencyList(PointNode point) {
+		AdjacencyList adjacencyList = PointNode.getTolerant(_adjLists, point);
+		if (adjacencyList != null)
+			return adjacencyList;
+
+		_creationLock.lock();
+		try {
+			// another thread may have created it since the lookup
+			adjacencyList = PointNode.getTolerant(_adjLists, point);
+			if (adjacencyList == null) {
+				PointNode key = newListKey(point);
+				adjacencyList = new AdjacencyList(key, _order.size());
+				_order.add(adjacencyList);
+				_adjLists.put(key, adjacencyList);
+			}
+			return adjacencyList;
+		} finally {
+			_creationLock.unlock();
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the adjacency lists. Called with every read lock
+	 * held, lists created afterwards stay empty until the locks are released.
+	 */
+	@Override
+	Iterable<AdjacencyList> adjacencyLists() {
+		_creationLock.lock();
+		try {
+			return new ArrayList<AdjacencyList>(_order);
+		} finally {
+			_creationLock.unlock();
+		}
+	}
+
+	@Override
+	public void addUndirectedEdge(PointNode point1, PointNode point2) {
+		AdjacencyList adjacencyList1 = adjacencyList(point1);
+		AdjacencyList adjacencyList2 = adjacencyList(point2);
+
+		int stripe1 = adjacencyList1._id % _stripes.length;
+		int stripe2 = adjacencyList2._id % _stripes.length;
+		ReentrantReadWriteLock.WriteLock first = _stripes[Math.min(stripe1, stripe2)].writeLock();
+		ReentrantReadWriteLock.WriteLock second = _stripes[Math.max(stripe1, stripe2)].writeLock();
+
+		first.lock();
+		if (second != first)
+			second.lock();
+		try {
+			boolean newSegment = !joined(adjacencyList1, adjacencyList2);
+			int completed = 0;
+			if (addDirectedEdge(adjacencyList1, adjacencyList2))
+				completed++;
+			if (addDirectedEdge(adjacencyList2, adjacencyList1))
+				completed++;
+			if (completed > 0)
+				_undirectedEdgeCount.addAndGet(completed);
+			if (newSegment)
+				indexUnderLock(adjacencyList1, adjacencyList2);
+		} finally {
+			if (second != first)
+				second.unlock();
+			first.unlock();
+		}
+	}
+
+	@Override
+	int recountUndirectedEdges() {
+		return readAll(() -> super.recountUndirectedEdges());
+	}
+
+	@Override
+	public List<SegmentNode> asSegmentList() {
+		return readAll(() -> super.asSegmentList());
+	}
+
+	@Override
+	public List<SegmentNode> asUniqueSegmentList() {
+		return readAll(() -> super.asUniqueSegmentList());
+	}
+
+	@Override
+	public void forEachEdge(BiConsumer<PointNode, PointNode> consumer) {
+		readAll(() -> {
+			super.forEachEdge(consumer);
+			return null;
+		});
+	}
+
+	@Override
+	public void forEachAdjacencyList(BiConsumer<PointNode, Set<PointNode>> consumer) {
+		readAll(() -> {
+			super.forEachAdjacencyList(consumer);
+			return null;
+		});
+	}
+
+	@Override
+	public Stream<SegmentNode> segmentStream() {
+		return asSegmentList().stream();
+	}
+
+	@Override
+	public Stream<SegmentNode> uniqueSegmentStream() {
+		return asUniqueSegmentList().stream();
+	}
+
+	@Override
+	public void forEachUniqueSegment(BiConsumer<PointNode, PointNode> consumer) {
+		readAll(() -> {
+			super.forEachUniqueSegment(consumer);
+			return null;
+		});
+	}
+
+	@Override
+	public List<SegmentNode> withinBox(double minX, double minY, double maxX, double maxY) {
+		return readIndex(() -> super.withinBox(minX, minY, maxX, maxY));
+	}
+
+	@Override
+	public List<SegmentNode> withinDistance(double x, double y, double distance) {
+		return readIndex(() -> super.withinDistance(x, y, distance));
+	}
+
+	@Override
+	public SegmentNode nearest(double x, double y) {
+		return readIndex(() -> super.nearest(x, y));
+	}
+
+	@Override
+	public int numComponents() {
+		return readIndex(() -> super.numComponents());
+	}
+
+	@Override
+	public boolean connected(PointNode point1, PointNode point2) {
+		return readIndex(() -> super.connected(point1, point2));
+	}
+
+	@Override
+	public List<SegmentNode> cycleClosingSegments() {
+		return readIndex(() -> super.cycleClosingSegments());
+	}
+
+	private void indexUnderLock(AdjacencyList adjacencyList1, AdjacencyList adjacencyList2) {
+		_indexLock.lock();
+		try {
+			index(adjacencyList1, adjacencyList2);
+		} finally {
+			_indexLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs a query of the spatial index or the connected components with every
+	 * stripe's read lock and the indexes' lock held.
+	 */
+	private <T> T readIndex(Supplier<T> query) {
+		return readAll(() -> {
+			_indexLock.lock();
+			try {
+				return query.get();
+			} finally {
+				_indexLock.unlock();
+			}
+		});
+	}
+
+	@Override
+	public FrozenSegmentNodeDatabase freeze() {
+		return readAll(() -> super.freeze());
+	}
+
+	@Override
+	public void unparse(StringBuilder sb, int level) {
+		readAll(() -> {
+			super.unparse(sb, level);
+			return null;
+		});
+	}
+
+	/**
+	 * Runs the read with every stripe's read lock held.
+	 */
+	private <T> T readAll(Supplier<T> read) {
+		int locked = 0;
+		try {
+			for (; locked < _stripes.length; locked++)
+				_stripes[locked].readLock().lock();
+			return read.get();
+		} finally {
+			while (locked > 0)
+				_stripes[--locked].readLock().unlock();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package input.components.segment;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A lock-free union-find over the ints 0 .. n - 1, which any number of threads
+ * may union into at once.
+ * <p>
+ * A union links the root with the larger index under the other with a single
+ * compare-and-set, retrying if another thread moved either root first; finds
+ * halve paths with compare-and-sets that may harmlessly fail. Parents are
+ * never larger than their children, so the root of every set is its smallest
+ * element, whatever order the unions ran in.
+ */
+class ConcurrentUnionFind {
+	private final AtomicIntegerArray _parent;
+
+	ConcurrentUnionFind(int n) {
+		_parent = new AtomicIntegerArray(n);
+		for (int i = 0; i < n; i++)
+			_parent.set(i, i);
+	}
+
+	/**
+	 * @return the smallest element in the set of the given one.
+	 */
+	int find(int element) {
+		while (true) {
+			int parent = _parent.get(element);
+			if (parent == element)
+				return element;
+			int grandparent = _parent.get(parent);
+			if (grandparent != parent)
+				_parent.compareAndSet(element, parent, grandparent);
+			element = grandparent;
+		}
+	}
+
+	/**
+	 * Merges the sets of the two elements.
+	 *
+	 * @return true if they were in different sets.
+	 */
+	boolean union(int element1, int element2) {
+		while (true) {
+			int root1 = find(element1);
+			int root2 = find(element2);
+			if (root1 == root2)
+				return false;
+			int larger = Math.max(root1, root2);
+			if (_parent.compareAndSet(larger, larger, Math.min(root1, root2)))
+				return true;
+		}
+	}
+}
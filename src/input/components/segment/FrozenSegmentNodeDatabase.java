@@ -0,0 +1,213 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import input.components.point.PointNode;
+import input.components.point.PointNodeGrid;
+
+/**
+ * An immutable snapshot of a SegmentNodeDatabase in compressed sparse row
+ * form.
+ * <p>
+ * Points are numbered 0 .. size() - 1: first the points with adjacency lists,
+ * in the order of their lists, then any points which only appear as
+ * neighbors. The neighbors of point i are _neighbors[_offsets[i] ..
+ * _offsets[i + 1]), sorted by index, so each directed edge costs one int and
+ * hasEdge is a binary search. Points are mapped back to their indices through
+ * a PointNodeGrid, which holds no objects of its own.
+ */
+public class FrozenSegmentNodeDatabase {
+	private final PointNode[] _points;
+	private final PointNodeGrid _indices;
+	private final int[] _offsets;
+	private final int[] _neighbors;
+	private final int _numUndirectedEdges;
+
+	/**
+	 * Copies the adjacency lists of the given database.
+	 */
+	FrozenSegmentNodeDatabase(SegmentNodeDatabase segments) {
+		Iterable<AdjacencyList> adjacencyLists = segments.adjacencyLists();
+		List<PointNode> points = new ArrayList<PointNode>();
+		for (AdjacencyList adjacencyList : adjacencyLists)
+			points.add(adjacencyList._point);
+		// no two stored points are equal, so each is found at its own index
+		_indices = new PointNodeGrid(points.size());
+		for (PointNode point : points)
+			_indices.add(point.getX(), point.getY());
+
+		int numLists = points.size();
+		int numDirectedEdges = 0;
+		for (AdjacencyList adjacencyList : adjacencyLists) {
+			numDirectedEdges += adjacencyList._neighbors.size();
+			for (PointNode point : adjacencyList._neighbors) {
+				if (_indices.indexOf(point.getX(), point.getY()) == -1) {
+					_indices.add(point.getX(), point.getY());
+					points.add(point);
+				}
+			}
+		}
+		int numPoints = points.size();
+		_points = points.toArray(new PointNode[numPoints]);
+
+		_offsets = new int[numPoints + 1];
+		_neighbors = new int[numDirectedEdges];
+		int next = 0;
+		for (AdjacencyList adjacencyList : adjacencyLists) {
+			int start = next;
+			for (PointNode point : adjacencyList._neighbors)
+				_neighbors[next++] = _indices.indexOf(point.getX(), point.getY());
+			Arrays.sort(_neighbors, start, next);
+			_offsets[adjacencyList._id + 1] = next;
+		}
+		// points without lists have no neighbors
+		for (int i = numLists + 1; i <= numPoints; i++)
+			_offsets[i] = next;
+
+		_numUndirectedEdges = segments.numUndirectedEdges();
+	}
+
+	/**
+	 * @return the number of points in the snapshot.
+	 */
+	public int size() {
+		return _points.length;
+	}
+
+	/**
+	 * @param index
+	 * @return the point with the given index.
+	 */
+	public PointNode getPoint(int index) {
+		return _points[index];
+	}
+
+	/**
+	 * @param point
+	 * @return the index of the point equal to the given one, or -1 if there is
+	 *         none.
+	 */
+	public int indexOf(PointNode point) {
+		return point != null ? _indices.indexOf(point.getX(), point.getY()) : -1;
+	}
+
+	/**
+	 * @param index
+	 * @return the number of neighbors of the point with the given index.
+	 */
+	public int degree(int index) {
+		return _offsets[index + 1] - _offsets[index];
+	}
+
+	/**
+	 * @param index
+	 * @param k
+	 * @return the index of the k-th neighbor of the point, counting in
+	 *         increasing index order.
+	 */
+	public int neighbor(int index, int k) {
+		if (k < 0 || k >= degree(index))
+			throw new IndexOutOfBoundsException(k);
+		return _neighbors[_offsets[index] + k];
+	}
+
+	/**
+	 * Passes the index of each neighbor of the point to the consumer, in
+	 * increasing order.
+	 */
+	public void forEachNeighbor(int index, IntConsumer consumer) {
+		for (int i = _offsets[index]; i < _offsets[index + 1]; i++)
+			consumer.accept(_neighbors[i]);
+	}
+
+	/**
+	 * @return true if there is an edge from the point with index from to the
+	 *         point with index to.
+	 */
+	public boolean hasEdge(int from, int to) {
+		return Arrays.binarySearch(_neighbors, _offsets[from], _offsets[from + 1], to) >= 0;
+	}
+
+	/**
+	 * @return true if there is an edge between points equal to the given ones.
+	 */
+	public boolean hasEdge(PointNode from, PointNode to) {
+		int fromIndex = indexOf(from);
+		int toIndex = indexOf(to);
+		return fromIndex != -1 && toIndex != -1 && hasEdge(fromIndex, toIndex);
+	}
+
+	/**
+	 * Builds the neighbors of each point with edges taken as undirected: each
+	 * directed edge, and its reverse where that is missing. A point joined to
+	 * itself is its own neighbor once.
+	 * 
+	 * @return for each point index, the indices of its neighbors
+	 */
+	int[][] undirectedNeighbors() {
+		int n = size();
+		int[] degrees = new int[n];
+		for (int from = 0; from < n; from++) {
+			for (int i = _offsets[from]; i < _offsets[from + 1]; i++) {
+				int to = _neighbors[i];
+				degrees[from]++;
+				if (to != from && !hasEdge(to, from))
+					degrees[to]++;
+			}
+		}
+		int[][] neighbors = new int[n][];
+		for (int i = 0; i < n; i++)
+			neighbors[i] = new int[degrees[i]];
+		Arrays.fill(degrees, 0);
+		for (int from = 0; from < n; from++) {
+			for (int i = _offsets[from]; i < _offsets[from + 1]; i++) {
+				int to = _neighbors[i];
+				neighbors[from][degrees[from]++] = to;
+				if (to != from && !hasEdge(to, from))
+					neighbors[to][degrees[to]++] = from;
+			}
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Labels the connected components in parallel, taking edges as undirected.
+	 * The edges of each point are unioned into a lock-free union-find by the
+	 * pool's threads, so this suits graphs too large for one thread to label
+	 * quickly.
+	 * 
+	 * @param pool pool to run on
+	 * @return for each point index, the smallest index in its component.
+	 */
+	public int[] componentLabels(ForkJoinPool pool) {
+		int n = size();
+		ConcurrentUnionFind components = new ConcurrentUnionFind(n);
+		int[] labels = new int[n];
+		// a parallel stream started inside a pool's task runs in that pool
+		pool.submit(() -> {
+			IntStream.range(0, n).parallel().forEach(i -> forEachNeighbor(i, j -> components.union(i, j)));
+			IntStream.range(0, n).parallel().forEach(i -> labels[i] = components.find(i));
+		}).join();
+		return labels;
+	}
+
+	/**
+	 * @return the number of directed edges.
+	 */
+	public int numDirectedEdges() {
+		return _neighbors.length;
+	}
+
+	/**
+	 * @return the number of pairs of distinct points with an edge in each
+	 *         direction.
+	 */
+	public int numUndirectedEdges() {
+		return _numUndirectedEdges;
+	}
+}
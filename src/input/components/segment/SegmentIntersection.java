@@ -0,0 +1,75 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import input.components.point.PointNode;
+import utilities.math.MathUtilities;
+
+/**
+ * A point where two or more segments meet other than at a shared endpoint:
+ * where segments cross, where an endpoint of one segment lies inside another,
+ * or where collinear segments overlap.
+ */
+public class SegmentIntersection {
+	private final PointNode _point;
+	private final List<SegmentNode> _segments;
+
+	SegmentIntersection(PointNode point, List<SegmentNode> segments) {
+		_point = point;
+		_segments = Collections.unmodifiableList(segments);
+	}
+
+	public PointNode getPoint() {
+		return _point;
+	}
+
+	/**
+	 * @return every segment passing through the point, including those which
+	 *         only end there.
+	 */
+	public List<SegmentNode> getSegments() {
+		return _segments;
+	}
+
+	/**
+	 * @return each pair of segments which intersect at the point, leaving out
+	 *         pairs which merely share it as an endpoint. Overlapping collinear
+	 *         segments are paired only at the ends of their overlap.
+	 */
+	public List<SegmentNode[]> getPairs() {
+		List<SegmentNode[]> pairs = new ArrayList<SegmentNode[]>();
+		for (int i = 0; i < _segments.size(); i++) {
+			for (int j = i + 1; j < _segments.size(); j++) {
+				SegmentNode a = _segments.get(i);
+				SegmentNode b = _segments.get(j);
+				boolean endpointA = hasEndpoint(a);
+				boolean endpointB = hasEndpoint(b);
+				if (endpointA && endpointB)
+					continue;
+				if (!endpointA && !endpointB && parallel(a, b))
+					continue;
+				pairs.add(new SegmentNode[] { a, b });
+			}
+		}
+		return pairs;
+	}
+
+	private boolean hasEndpoint(SegmentNode segment) {
+		return segment.getPoint1().equals(_point) || segment.getPoint2().equals(_point);
+	}
+
+	private static boolean parallel(SegmentNode a, SegmentNode b) {
+		double dxA = a.getPoint2().getX() - a.getPoint1().getX();
+		double dyA = a.getPoint2().getY() - a.getPoint1().getY();
+		double dxB = b.getPoint2().getX() - b.getPoint1().getX();
+		double dyB = b.getPoint2().getY() - b.getPoint1().getY();
+		return Math.abs(dxA * dyB - dyA * dxB) < MathUtilities.EPSILON * Math.hypot(dxA, dyA) * Math.hypot(dxB, dyB);
+	}
+
+	@Override
+	public String toString() {
+		return "Intersection " + _point + " " + _segments;
+	}
+}
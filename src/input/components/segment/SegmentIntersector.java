@@ -0,0 +1,316 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import utilities.math.MathUtilities;
+
+/**
+ * Finds the intersections among the segments of a SegmentNodeDatabase with a
+ * Bentley-Ottmann plane sweep, in O((E + K) log E) for E segments and K
+ * intersections.
+ * <p>
+ * This follows the version in de Berg et al., Computational Geometry, which
+ * handles every segment starting at, ending at or passing through an event
+ * point together, so shared endpoints, endpoints lying on other segments,
+ * vertical segments and collinear overlaps need no special cases. The sweep
+ * line is vertical and moves right; events are ordered by x, then y.
+ * Coordinates within EPSILON of each other are treated as equal throughout.
+ */
+class SegmentIntersector {
+	private static final double EPSILON = MathUtilities.EPSILON;
+
+	/**
+	 * A segment, oriented from the endpoint which the sweep reaches first.
+	 */
+	private static class Segment {
+		final SegmentNode _node;
+		final int _id;
+		final double _x1;
+		final double _y1;
+		final double _x2;
+		final double _y2;
+		final boolean _vertical;
+		final double _slope;
+
+		Segment(SegmentNode node, int id, PointNode first, PointNode last) {
+			_node = node;
+			_id = id;
+			_x1 = first.getX();
+			_y1 = first.getY();
+			_x2 = last.getX();
+			_y2 = last.getY();
+			_vertical = MathUtilities.doubleEquals(_x1, _x2);
+			_slope = _vertical ? Double.POSITIVE_INFINITY : (_y2 - _y1) / (_x2 - _x1);
+		}
+
+		boolean endsAt(PointNode point) {
+			return MathUtilities.doubleEquals(_x2, point.getX()) && MathUtilities.doubleEquals(_y2, point.getY());
+		}
+	}
+
+	// pending event points, each with the segments whose first endpoint it is
+	private final TreeMap<PointNode, List<Segment>> _events;
+
+	// segments crossing the sweep line, from bottom to top
+	private final TreeSet<Segment> _status;
+
+	// the event being handled; segments meeting at it are ordered as they are
+	// just before it until _afterEvent is set
+	private double _sweepX;
+	private double _sweepY;
+	private boolean _afterEvent;
+
+	// placeholders for the bottom and top of the EPSILON band around the event
+	private final Segment _bandBottom;
+	private final Segment _bandTop;
+
+	private final List<SegmentIntersection> _intersections;
+
+	SegmentIntersector(SegmentNodeDatabase segments) {
+		_events = new TreeMap<PointNode, List<Segment>>(SegmentIntersector::compareEvents);
+		_status = new TreeSet<Segment>(this::compareStatus);
+		PointNode origin = new PointNode(0, 0);
+		_bandBottom = new Segment(null, -1, origin, origin);
+		_bandTop = new Segment(null, -1, origin, origin);
+		_intersections = new ArrayList<SegmentIntersection>();
+
+		List<Segment> all = new ArrayList<Segment>();
+		segments.forEachUniqueSegment((from, to) -> {
+			int order = compareEvents(from, to);
+			if (order == 0)
+				return;
+			PointNode first = order < 0 ? from : to;
+			PointNode last = order < 0 ? to : from;
+			Segment segment = new Segment(new SegmentNode(from, to), all.size(), first, last);
+			all.add(segment);
+			_events.computeIfAbsent(first, p -> new ArrayList<Segment>()).add(segment);
+			_events.computeIfAbsent(last, p -> new ArrayList<Segment>());
+		});
+	}
+
+	/**
+	 * Runs the sweep.
+	 *
+	 * @param points if not null, the database to add each new intersection
+	 *               point to, as an unnamed point
+	 * @return the intersections, ordered by x, then y
+	 */
+	List<SegmentIntersection> run(PointNodeDatabase points) {
+		while (!_events.isEmpty()) {
+			Map.Entry<PointNode, List<Segment>> event = _events.pollFirstEntry();
+			handleEvent(event.getKey(), event.getValue(), points);
+		}
+		return _intersections;
+	}
+
+	private void handleEvent(PointNode point, List<Segment> starting, PointNodeDatabase points) {
+		_sweepX = point.getX();
+		_sweepY = point.getY();
+		_afterEvent = false;
+
+		// segments in the status which end at or pass through the point are
+		// adjacent, inside the EPSILON band around it
+		List<Segment> ending = new ArrayList<Segment>();
+		List<Segment> passing = new ArrayList<Segment>();
+		for (Segment segment = _status.ceiling(_bandBottom); segment != null
+				&& yAt(segment) < _sweepY + EPSILON; segment = _status.higher(segment)) {
+			if (!contains(segment, point))
+				continue;
+			if (segment.endsAt(point))
+				ending.add(segment);
+			else
+				passing.add(segment);
+		}
+
+		if (!passing.isEmpty())
+			report(point, starting, ending, passing, points);
+
+		for (Segment segment : ending)
+			remove(segment);
+		for (Segment segment : passing)
+			remove(segment);
+
+		// reinserting the passing segments reverses their order
+		_afterEvent = true;
+		_status.addAll(starting);
+		_status.addAll(passing);
+
+		if (starting.isEmpty() && passing.isEmpty()) {
+			findEvent(_status.lower(_bandBottom), _status.higher(_bandTop), point);
+			return;
+		}
+
+		Segment lowest = null;
+		Segment highest = null;
+		for (List<Segment> inserted : List.of(starting, passing)) {
+			for (Segment segment : inserted) {
+				if (lowest == null || compareStatus(segment, lowest) < 0)
+					lowest = segment;
+				if (highest == null || compareStatus(segment, highest) > 0)
+					highest = segment;
+			}
+		}
+		findEvent(_status.lower(lowest), lowest, point);
+		findEvent(highest, _status.higher(highest), point);
+	}
+
+	private void report(PointNode point, List<Segment> starting, List<Segment> ending, List<Segment> passing,
+			PointNodeDatabase points) {
+		if (points != null) {
+			PointNode stored = points.getPoint(point);
+			if (stored == null)
+				points.put(point);
+			else
+				point = stored;
+		}
+
+		List<SegmentNode> nodes = new ArrayList<SegmentNode>();
+		for (List<Segment> group : List.of(starting, ending, passing))
+			for (Segment segment : group)
+				nodes.add(segment._node);
+		_intersections.add(new SegmentIntersection(point, nodes));
+	}
+
+	/**
+	 * Removes a segment from the status. Should rounding have left the status
+	 * out of order, the segment is found by a linear search instead.
+	 */
+	private void remove(Segment segment) {
+		if (!_status.remove(segment)) {
+			for (Iterator<Segment> it = _status.iterator(); it.hasNext();) {
+				if (it.next() == segment) {
+					it.remove();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the intersection of two segments adjacent in the status as an event,
+	 * if it lies after the current event.
+	 */
+	private void findEvent(Segment below, Segment above, PointNode current) {
+		if (below == null || above == null)
+			return;
+		PointNode point = intersection(below, above);
+		if (point != null && compareEvents(point, current) > 0)
+			_events.putIfAbsent(point, new ArrayList<Segment>());
+	}
+
+	/**
+	 * @return the point where two segments cross, or null if they do not or
+	 *         are parallel; the endpoints of parallel segments are events
+	 *         already.
+	 */
+	private static PointNode intersection(Segment a, Segment b) {
+		double dxA = a._x2 - a._x1;
+		double dyA = a._y2 - a._y1;
+		double dxB = b._x2 - b._x1;
+		double dyB = b._y2 - b._y1;
+		double denominator = dxA * dyB - dyA * dxB;
+		double lengthA = Math.hypot(dxA, dyA);
+		double lengthB = Math.hypot(dxB, dyB);
+		if (Math.abs(denominator) < EPSILON * lengthA * lengthB)
+			return null;
+
+		double dx = b._x1 - a._x1;
+		double dy = b._y1 - a._y1;
+		double t = (dx * dyB - dy * dxB) / denominator;
+		double u = (dx * dyA - dy * dxA) / denominator;
+		double toleranceA = EPSILON / lengthA;
+		double toleranceB = EPSILON / lengthB;
+		if (t < -toleranceA || t > 1 + toleranceA || u < -toleranceB || u > 1 + toleranceB)
+			return null;
+
+		return new PointNode(a._x1 + t * dxA, a._y1 + t * dyA);
+	}
+
+	/**
+	 * @return true if the point lies on the segment, measuring vertically (or
+	 *         along the segment, for vertical segments).
+	 */
+	private static boolean contains(Segment segment, PointNode point) {
+		double x = point.getX();
+		double y = point.getY();
+		if (segment._vertical)
+			return MathUtilities.doubleEquals(segment._x1, x) && y > segment._y1 - EPSILON && y < segment._y2 + EPSILON;
+		return x > segment._x1 - EPSILON && x < segment._x2 + EPSILON
+				&& MathUtilities.doubleEquals(y, segment._y1 + (x - segment._x1) * segment._slope);
+	}
+
+	/**
+	 * @return the height of the segment on the sweep line. A vertical segment
+	 *         is in the status only while the sweep passes along it, and is
+	 *         taken to be at the current event.
+	 */
+	private double yAt(Segment segment) {
+		if (segment._vertical)
+			return _sweepY;
+		if (_sweepX == segment._x1)
+			return segment._y1;
+		if (_sweepX == segment._x2)
+			return segment._y2;
+		return segment._y1 + (_sweepX - segment._x1) * segment._slope;
+	}
+
+	/**
+	 * Orders segments by their height on the sweep line. Segments meeting
+	 * there are ordered by slope as they are just after the meeting point if
+	 * the sweep has passed it, and just before it otherwise, with vertical
+	 * segments steepest; parallel segments are ordered by id.
+	 */
+	private int compareStatus(Segment a, Segment b) {
+		if (a == b)
+			return 0;
+		if (a == _bandBottom || b == _bandBottom) {
+			int order = yAt(a == _bandBottom ? b : a) > _sweepY - EPSILON ? -1 : 1;
+			return a == _bandBottom ? order : -order;
+		}
+		if (a == _bandTop || b == _bandTop) {
+			int order = yAt(a == _bandTop ? b : a) >= _sweepY + EPSILON ? -1 : 1;
+			return a == _bandTop ? order : -order;
+		}
+
+		double yA = yAt(a);
+		double yB = yAt(b);
+		if (!MathUtilities.doubleEquals(yA, yB))
+			return Double.compare(yA, yB);
+
+		int bySlope = compareSlopes(a, b);
+		if (bySlope == 0)
+			return Integer.compare(a._id, b._id);
+		boolean passed = MathUtilities.doubleEquals(yA, _sweepY) ? _afterEvent : yA < _sweepY;
+		return passed ? bySlope : -bySlope;
+	}
+
+	private static int compareSlopes(Segment a, Segment b) {
+		if (a._vertical || b._vertical)
+			return Boolean.compare(a._vertical, b._vertical);
+		double dxA = a._x2 - a._x1;
+		double dyA = a._y2 - a._y1;
+		double dxB = b._x2 - b._x1;
+		double dyB = b._y2 - b._y1;
+		if (Math.abs(dxA * dyB - dyA * dxB) < EPSILON * Math.hypot(dxA, dyA) * Math.hypot(dxB, dyB))
+			return 0;
+		return Double.compare(a._slope, b._slope);
+	}
+
+	/**
+	 * Orders points by x, then y, treating coordinates within EPSILON as equal.
+	 */
+	static int compareEvents(PointNode a, PointNode b) {
+		if (!MathUtilities.doubleEquals(a.getX(), b.getX()))
+			return Double.compare(a.getX(), b.getX());
+		if (!MathUtilities.doubleEquals(a.getY(), b.getY()))
+			return Double.compare(a.getY(), b.getY());
+		return 0;
+	}
+}
@@ -0,0 +1,241 @@
+package input.components.segment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import input.components.point.PointNode;
+
+/**
+ * Connected components of the points of a SegmentNodeDatabase, kept in a
+ * union-find structure which is updated as segments are added.
+ * <p>
+ * Every point of the database is an int element: those with adjacency lists
+ * by way of their list's id, and those which only appear as neighbors by way
+ * of a map. Sets are merged by rank and paths are halved on every find, so
+ * each operation takes close to constant amortized time. Edges are taken as
+ * undirected. A segment whose endpoints are already connected closes a cycle
+ * and is recorded; there are as many of these as independent cycles.
+ */
+class SegmentNodeConnectivity {
+	private static final int NONE = -1;
+
+	private final SegmentNodeDatabase _database;
+
+	// element of each adjacency list, by list id
+	private int[] _listElements;
+	// elements of points without adjacency lists
+	private final Map<PointNode, Integer> _unlisted;
+
+	private int[] _parent;
+	private byte[] _rank;
+	private int _size;
+	private int _numComponents;
+
+	private final List<SegmentNode> _cycleClosing;
+
+	/**
+	 * Builds the components of every point and segment currently in the
+	 * database.
+	 */
+	SegmentNodeConnectivity(SegmentNodeDatabase database) {
+		_database = database;
+		_listElements = new int[16];
+		Arrays.fill(_listElements, NONE);
+		_unlisted = new HashMap<PointNode, Integer>();
+		_parent = new int[16];
+		_rank = new byte[16];
+		_cycleClosing = new ArrayList<SegmentNode>();
+
+		for (AdjacencyList adjacencyList : database.adjacencyLists()) {
+			element(adjacencyList);
+			for (PointNode point : adjacencyList._neighbors) {
+				if (!database.seenEarlier(adjacencyList, point))
+					union(adjacencyList, point);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of connected components.
+	 */
+	int numComponents() {
+		return _numComponents;
+	}
+
+	/**
+	 * @return the segments which closed a cycle when they were added, in the
+	 *         order they were added; segments present at the build count as
+	 *         added in the order of forEachUniqueSegment.
+	 */
+	List<SegmentNode> cycleClosing() {
+		return _cycleClosing;
+	}
+
+	/**
+	 * Records a new segment from the list's point to the given point.
+	 */
+	void union(AdjacencyList adjacencyList, PointNode point) {
+		int root1 = find(element(adjacencyList));
+		int root2 = find(element(point));
+		if (root1 == root2) {
+			_cycleClosing.add(new SegmentNode(adjacencyList._point, point));
+			return;
+		}
+
+		if (_rank[root1] < _rank[root2]) {
+			int swap = root1;
+			root1 = root2;
+			root2 = swap;
+		}
+		_parent[root2] = root1;
+		if (_rank[root1] == _rank[root2])
+			_rank[root1]++;
+		_numComponents--;
+	}
+
+	/**
+	 * @return true if both points are in the database and in the same
+	 *         component.
+	 */
+	boolean connected(PointNode point1, PointNode point2) {
+		int element1 = lookup(point1);
+		int element2 = lookup(point2);
+		return element1 != NONE && element2 != NONE && find(element1) == find(element2);
+	}
+
+	/**
+	 * @return the element of the point, or NONE if it has none.
+	 */
+	private int lookup(PointNode point) {
+		AdjacencyList adjacencyList = PointNode.getTolerant(_database._adjLists, point);
+		if (adjacencyList != null && adjacencyList._id < _listElements.length
+				&& _listElements[adjacencyList._id] != NONE)
+			return _listElements[adjacencyList._id];
+		Integer element = PointNode.getTolerant(_unlisted, point);
+		return element != null ? element : NONE;
+	}
+
+	/**
+	 * @return the element of the list's point, creating it if needed.
+	 */
+	private int element(AdjacencyList adjacencyList) {
+		int id = adjacencyList._id;
+		if (id >= _listElements.length) {
+			int length = _listElements.length;
+			_listElements = Arrays.copyOf(_listElements, Math.max(id + 1, length * 2));
+			Arrays.fill(_listElements, length, _listElements.length, NONE);
+		}
+		if (_listElements[id] == NONE) {
+			// the point may have been a neighbor before it had a list
+			Integer element = _unlisted.isEmpty() ? null : PointNode.getTolerant(_unlisted, adjacencyList._point);
+			_listElements[id] = element != null ? element : newElement();
+		}
+		return _listElements[id];
+	}
+
+	/**
+	 * @return the element of a neighbor, creating it if needed.
+	 */
+	private int element(PointNode point) {
+		AdjacencyList adjacencyList = _database._adjLists.get(point);
+		if (adjacencyList != null)
+			return element(adjacencyList);
+		Integer element = PointNode.getTolerant(_unlisted, point);
+		if (element == null) {
+			element = newElement();
+			_unlisted.put(point, element);
+		}
+		return element;
+	}
+
+	private int newElement() {
+		if (_size == _parent.length) {
+			_parent = Arrays.copyOf(_parent, _size * 2);
+			_rank = Arrays.copyOf(_rank, _size * 2);
+		}
+		_parent[_size] = _size;
+		_numComponents++;
+		return _size++;
+	}
+
+	private int find(int element) {
+		while (_parent[element] != element) {
+			_parent[element] = _parent[_parent[element]];
+			element = _parent[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Finds the fundamental cycles of a breadth-first spanning forest of the
+	 * database: one cycle for each segment outside the forest, made of that
+	 * segment and the forest path between its endpoints. Breadth-first trees
+	 * keep these paths, and so the cycles, short.
+	 *
+	 * @return the cycles, each as its points in order around it.
+	 */
+	static List<List<PointNode>> cycleBasis(SegmentNodeDatabase database) {
+		FrozenSegmentNodeDatabase frozen = database.freeze();
+		int n = frozen.size();
+		int[][] neighbors = frozen.undirectedNeighbors();
+
+		List<List<PointNode>> cycles = new ArrayList<List<PointNode>>();
+		int[] parent = new int[n];
+		int[] depth = new int[n];
+		boolean[] processed = new boolean[n];
+		Arrays.fill(parent, NONE);
+		Arrays.fill(depth, NONE);
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+
+		for (int root = 0; root < n; root++) {
+			if (depth[root] != NONE)
+				continue;
+			depth[root] = 0;
+			queue.add(root);
+			while (!queue.isEmpty()) {
+				int u = queue.poll();
+				for (int v : neighbors[u]) {
+					if (v == u)
+						cycles.add(List.of(frozen.getPoint(u)));
+					else if (depth[v] == NONE) {
+						parent[v] = u;
+						depth[v] = depth[u] + 1;
+						queue.add(v);
+					}
+					// each edge outside the forest is met from both ends;
+					// it is taken from the second
+					else if (processed[v] && v != parent[u])
+						cycles.add(cycle(frozen, parent, depth, u, v));
+				}
+				processed[u] = true;
+			}
+		}
+		return cycles;
+	}
+
+	/**
+	 * @return the cycle made of the segment u-v and the forest path from v
+	 *         back to u.
+	 */
+	private static List<PointNode> cycle(FrozenSegmentNodeDatabase frozen, int[] parent, int[] depth, int u, int v) {
+		List<PointNode> fromU = new ArrayList<PointNode>();
+		List<PointNode> fromV = new ArrayList<PointNode>();
+		while (u != v) {
+			if (depth[u] >= depth[v]) {
+				fromU.add(frozen.getPoint(u));
+				u = parent[u];
+			} else {
+				fromV.add(frozen.getPoint(v));
+				v = parent[v];
+			}
+		}
+		fromU.add(frozen.getPoint(u));
+		for (int i = fromV.size() - 1; i >= 0; i--)
+			fromU.add(fromV.get(i));
+		return fromU;
+	}
+}
@@ -3,14 +3,21 @@ package input.components.segment;
 import input.components.ComponentNode;
 import input.components.point.PointNode;
 import input.components.point.PointNodeDatabase;
-import utilities.io.StringUtilities;
+import input.visitor.ComponentNodeVisitor;
+import input.visitor.UnparseVisitor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -19,6 +26,14 @@ import java.util.Set;
 
 /**
  * A database of undirected and directed edges stored as adjacency lists.
+ * <p>
+ * Points are matched with PointNode's epsilon equality, so two points which
+ * are equal always share one adjacency list, and an adjacency list never
+ * holds two equal points. Each point is stored as a single instance: the key
+ * of its adjacency list, in the lists of its neighbors as well. A point which
+ * is only the end of directed edges keeps the first instance stored, which
+ * becomes the key if the point later gets a list. Stored points can therefore
+ * be looked up without tolerance. Adjacency lists are kept in insertion order.
  *
  * @author Michael Thomas
  * @author Jake Shore
@@ -28,63 +43,156 @@ import java.util.Set;
  */
 public class SegmentNodeDatabase implements ComponentNode {
 
-	Map<PointNode, Set<PointNode>> _adjLists;
+	Map<PointNode, AdjacencyList> _adjLists;
+
+	// the stored instances of neighbors without adjacency lists, made by the
+	// map constructor; null if there are none
+	Map<PointNode, PointNode> _unlisted;
+
+	// number of pairs of distinct points joined in both directions
+	int _numUndirectedEdges;
+
+	// spatial index over the unique segments, built on first use
+	SegmentNodeRTree _tree;
+
+	// connected components, built on first use
+	SegmentNodeConnectivity _connectivity;
 
 	/**
 	 * Constructs a new empty PointSegmentDatabase.
 	 */
 	public SegmentNodeDatabase() {
-		_adjLists = new HashMap<PointNode, Set<PointNode>>();
+		_adjLists = new LinkedHashMap<PointNode, AdjacencyList>();
+		_numUndirectedEdges = 0;
 	}
 
 	/**
-	 * Constructs a new PointSegmentDatabase, using a new map of adjacency lists.
+	 * Constructs a new PointSegmentDatabase, copying the given map of adjacency
+	 * lists. Lists of equal points are merged.
 	 * 
 	 * @param adjLists Map of adjacency lists
 	 */
 	public SegmentNodeDatabase(Map<PointNode, Set<PointNode>> adjLists) {
-		_adjLists = new HashMap<PointNode, Set<PointNode>>(adjLists);
+		this();
+		for (PointNode point : adjLists.keySet())
+			adjacencyList(point);
+
+		for (Entry<PointNode, Set<PointNode>> entry : adjLists.entrySet()) {
+			AdjacencyList adjacencyList = adjacencyList(entry.getKey());
+			for (PointNode point : entry.getValue())
+				adjacencyList.add(storedNeighbor(point));
+		}
+		_numUndirectedEdges = recountUndirectedEdges();
+	}
+
+	/**
+	 * @return the instance to store for the given neighbor: that of its
+	 *         adjacency list, or else the one already stored for it, recording
+	 *         the point itself if there is none.
+	 */
+	private PointNode storedNeighbor(PointNode point) {
+		AdjacencyList adjacencyList = PointNode.getTolerant(_adjLists, point);
+		if (adjacencyList != null)
+			return adjacencyList._point;
+
+		if (_unlisted == null)
+			_unlisted = new HashMap<PointNode, PointNode>();
+		PointNode stored = PointNode.getTolerant(_unlisted, point);
+		if (stored == null) {
+			_unlisted.put(point, point);
+			stored = point;
+		}
+		return stored;
 	}
 
 	/**
-	 * Calculates the number of undirected edges in the SegmentNodeDatabase.
+	 * @return the instance to key a new adjacency list of the given point by:
+	 *         the one already stored as a neighbor, if any, else the point
+	 *         itself.
+	 */
+	PointNode newListKey(PointNode point) {
+		if (_unlisted == null)
+			return point;
+		PointNode stored = PointNode.getTolerant(_unlisted, point);
+		if (stored == null)
+			return point;
+		_unlisted.remove(stored);
+		return stored;
+	}
+
+	/**
+	 * Gets the number of undirected edges in the SegmentNodeDatabase: pairs of
+	 * distinct points with an edge in each direction. The count is kept up to
+	 * date as edges are added.
 	 * 
 	 * @return number of undirected edges
 	 */
 	public int numUndirectedEdges() {
-		int numOfUndirectedEdges = 0;
-		Set<SegmentNode> segments = new LinkedHashSet<SegmentNode>();
-
-		// counts the number of unique edges
-		for (Entry<PointNode, Set<PointNode>> entry : _adjLists.entrySet()) {
-			for (PointNode point : entry.getValue()) {
-				SegmentNode segment = new SegmentNode(entry.getKey(), point);
-				boolean added = segments.add(segment);
-				if (!added) {
-					numOfUndirectedEdges++;
-				}
+		assert _numUndirectedEdges == recountUndirectedEdges();
+		return _numUndirectedEdges;
+	}
+
+	/**
+	 * Counts the undirected edges from scratch, for checking the maintained
+	 * count; each pair is counted from its endpoint with the older list.
+	 * 
+	 * @return number of undirected edges
+	 */
+	int recountUndirectedEdges() {
+		int count = 0;
+		for (AdjacencyList adjacencyList : adjacencyLists()) {
+			for (PointNode point : adjacencyList._neighbors) {
+				AdjacencyList other = _adjLists.get(point);
+				if (other != null && other._id > adjacencyList._id
+						&& other._neighbors.contains(adjacencyList._point))
+					count++;
 			}
 		}
-		return numOfUndirectedEdges;
+		return count;
 	}
 
 	/**
 	 * Adds a directed edge to the SegmentNodeDatabase.
 	 * 
-	 * @param point1
-	 * @param point2
+	 * @param from
+	 * @param to
+	 * @return true if the edge is new and completes an undirected edge.
+	 */
+	boolean addDirectedEdge(AdjacencyList from, AdjacencyList to) {
+		return from.add(to._point) && from != to && to._neighbors.contains(from._point);
+	}
+
+	/**
+	 * @return the adjacency lists, in the order they were created.
+	 */
+	Iterable<AdjacencyList> adjacencyLists() {
+		return _adjLists.values();
+	}
+
+	/**
+	 * Gets the adjacency list of the given point, creating an empty one if the
+	 * point has none.
+	 * 
+	 * @param point
+	 * @return adjacency list of the point (or of a point equal to it)
 	 */
-	private void addDirectedEdge(PointNode point1, PointNode point2) {
-		Set<PointNode> connectedPoints = _adjLists.get(point1);
-		if (connectedPoints == null) {
-			// creates adjacency list with one edge and adds to adjacency lists
-			LinkedHashSet<PointNode> newPoint = new LinkedHashSet<PointNode>();
-			newPoint.add(point2);
-			_adjLists.put(point1, newPoint);
-		} else {
-			// adds to pre-existing adjacency list
-			connectedPoints.add(point2);
+	AdjacencyList adjacencyList(PointNode point) {
+		AdjacencyList adjacencyList = PointNode.getTolerant(_adjLists, point);
+		if (adjacencyList == null) {
+			PointNode key = newListKey(point);
+			adjacencyList = new AdjacencyList(key, _adjLists.size());
+			_adjLists.put(key, adjacencyList);
 		}
+		return adjacencyList;
+	}
+
+	/**
+	 * @return true if there is an edge between the two points in either
+	 *         direction.
+	 */
+	static boolean joined(AdjacencyList adjacencyList1, AdjacencyList adjacencyList2) {
+		return adjacencyList1._neighbors.contains(adjacencyList2._point)
+				|| adjacencyList2._neighbors.contains(adjacencyList1._point);
 	}
 
 	/**
@@ -94,8 +202,25 @@ public class SegmentNodeDatabase implements ComponentNode {
 	 * @param point2
 	 */
 	public void addUndirectedEdge(PointNode point1, PointNode point2) {
-		addDirectedEdge(point1, point2);
-		addDirectedEdge(point2, point1);
+		AdjacencyList adjacencyList1 = adjacencyList(point1);
+		AdjacencyList adjacencyList2 = adjacencyList(point2);
+		boolean newSegment = (_tree != null || _connectivity != null) && !joined(adjacencyList1, adjacencyList2);
+		if (addDirectedEdge(adjacencyList1, adjacencyList2))
+			_numUndirectedEdges++;
+		if (addDirectedEdge(adjacencyList2, adjacencyList1))
+			_numUndirectedEdges++;
+		if (newSegment)
+			index(adjacencyList1, adjacencyList2);
+	}
+
+	/**
+	 * Adds a new segment to the indexes which have been built.
+	 */
+	void index(AdjacencyList adjacencyList1, AdjacencyList adjacencyList2) {
+		if (_tree != null)
+			_tree.insert(new SegmentNode(adjacencyList1._point, adjacencyList2._point));
+		if (_connectivity != null)
+			_connectivity.union(adjacencyList1, adjacencyList2._point);
 	}
 
 	/**
@@ -117,14 +242,70 @@ public class SegmentNodeDatabase implements ComponentNode {
 	 */
 	public List<SegmentNode> asSegmentList() {
 		List<SegmentNode> segments = new ArrayList<SegmentNode>();
+		forEachEdge((from, to) -> segments.add(new SegmentNode(from, to)));
+		return segments;
+	}
 
-		// adds undirected edge to list of segment nodes
-		for (Entry<PointNode, Set<PointNode>> entry : _adjLists.entrySet()) {
-			for (PointNode point : entry.getValue()) {
-				segments.add(new SegmentNode(entry.getKey(), point));
-			}
+	/**
+	 * Passes each directed edge to the consumer, in the order asSegmentList
+	 * lists them, without building a list or any SegmentNodes.
+	 * 
+	 * @param consumer receives the start and end of each edge
+	 */
+	public void forEachEdge(BiConsumer<PointNode, PointNode> consumer) {
+		for (AdjacencyList adjacencyList : adjacencyLists()) {
+			for (PointNode point : adjacencyList._neighbors)
+				consumer.accept(adjacencyList._point, point);
 		}
-		return segments;
+	}
+
+	/**
+	 * Passes each point with an adjacency list, and a read-only view of its
+	 * neighbors, to the consumer, in the order asSegmentList lists them.
+	 * Points whose lists are empty are passed as well.
+	 * 
+	 * @param consumer receives each point and its neighbors
+	 */
+	public void forEachAdjacencyList(BiConsumer<PointNode, Set<PointNode>> consumer) {
+		for (AdjacencyList adjacencyList : adjacencyLists())
+			consumer.accept(adjacencyList._point, Collections.unmodifiableSet(adjacencyList._neighbors));
+	}
+
+	/**
+	 * A lazy view of the directed edges, in the order asSegmentList lists
+	 * them. SegmentNodes are created only as the stream reaches them, so
+	 * short-circuiting operations stop early, and the stream splits between
+	 * adjacency lists when run in parallel. The database must not be changed
+	 * while the stream runs.
+	 * 
+	 * @return stream of SegmentNodes
+	 */
+	public Stream<SegmentNode> segmentStream() {
+		return StreamSupport.stream(new SegmentSpliterator(this, adjacencyLists().spliterator(), false), false);
+	}
+
+	/**
+	 * A lazy view of the undirected edges, each once, in the order and
+	 * orientation asUniqueSegmentList lists them; otherwise as segmentStream.
+	 * 
+	 * @return stream of unique SegmentNodes
+	 */
+	public Stream<SegmentNode> uniqueSegmentStream() {
+		return StreamSupport.stream(new SegmentSpliterator(this, adjacencyLists().spliterator(), true), false);
+	}
+
+	/**
+	 * @return an Iterable over segmentStream, for use in for-each loops.
+	 */
+	public Iterable<SegmentNode> segments() {
+		return () -> Spliterators.iterator(segmentStream().spliterator());
+	}
+
+	/**
+	 * @return an Iterable over uniqueSegmentStream, for use in for-each loops.
+	 */
+	public Iterable<SegmentNode> uniqueSegments() {
+		return () -> Spliterators.iterator(uniqueSegmentStream().spliterator());
 	}
 
 	/**
@@ -134,20 +315,258 @@ public class SegmentNodeDatabase implements ComponentNode {
 	 * @return List of unique SegmentNodes
 	 */
 	public List<SegmentNode> asUniqueSegmentList() {
-
 		List<SegmentNode> segments = new ArrayList<SegmentNode>();
-		// adds undirected edges to list of segment nodes if not already in it
-		for (Entry<PointNode, Set<PointNode>> entry : _adjLists.entrySet()) {
-			for (PointNode point : entry.getValue()) {
-				SegmentNode segment = new SegmentNode(entry.getKey(), point);
-				if (!segments.contains(segment)) {
-					segments.add(segment);
-				}
+		forEachUniqueSegment((from, to) -> segments.add(new SegmentNode(from, to)));
+		return segments;
+	}
+
+	/**
+	 * Passes each undirected edge to the consumer once, in the order and
+	 * orientation asUniqueSegmentList lists them, without building a list.
+	 * <p>
+	 * An edge is first seen from whichever of its endpoints has the earlier
+	 * adjacency list. Its other sighting is recognized by comparing list ids,
+	 * so no set of edges seen so far is needed and the pass is O(E).
+	 * 
+	 * @param consumer receives the two endpoints of each edge
+	 */
+	public void forEachUniqueSegment(BiConsumer<PointNode, PointNode> consumer) {
+		for (AdjacencyList adjacencyList : adjacencyLists()) {
+			for (PointNode point : adjacencyList._neighbors) {
+				if (!seenEarlier(adjacencyList, point))
+					consumer.accept(adjacencyList._point, point);
 			}
 		}
+	}
+
+	/**
+	 * @return true if the edge from the list's point to the given neighbor is
+	 *         undirected and was already seen from the neighbor's older list.
+	 */
+	boolean seenEarlier(AdjacencyList adjacencyList, PointNode point) {
+		AdjacencyList other = _adjLists.get(point);
+		return other != null && other._id < adjacencyList._id
+				&& other._neighbors.contains(adjacencyList._point);
+	}
+
+	/**
+	 * Finds every segment touching the given axis-aligned box, such as a
+	 * viewport.
+	 * 
+	 * @param minX lower x bound (inclusive)
+	 * @param minY lower y bound (inclusive)
+	 * @param maxX upper x bound (inclusive)
+	 * @param maxY upper y bound (inclusive)
+	 * @return the segments found, each undirected edge once, in no particular
+	 *         order.
+	 */
+	public List<SegmentNode> withinBox(double minX, double minY, double maxX, double maxY) {
+		List<SegmentNode> segments = new ArrayList<SegmentNode>();
+		tree().withinBox(minX, minY, maxX, maxY, segments::add);
+		return segments;
+	}
+
+	/**
+	 * Finds every segment passing within the given distance of the given
+	 * coordinates, such as those near a click.
+	 * 
+	 * @param x        coordinate
+	 * @param y        coordinate
+	 * @param distance maximum distance (inclusive)
+	 * @return the segments found, each undirected edge once, in no particular
+	 *         order.
+	 */
+	public List<SegmentNode> withinDistance(double x, double y, double distance) {
+		List<SegmentNode> segments = new ArrayList<SegmentNode>();
+		tree().withinDistance(x, y, distance, segments::add);
 		return segments;
 	}
 
+	/**
+	 * Finds the segment passing closest to the given coordinates.
+	 * 
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return the closest segment, or null if the database has none.
+	 */
+	public SegmentNode nearest(double x, double y) {
+		return tree().nearest(x, y);
+	}
+
+	/**
+	 * @return the R-tree over the segments, building it on first use and
+	 *         rebuilding it once addUndirectedEdge has loosened it.
+	 */
+	SegmentNodeRTree tree() {
+		if (_tree == null || _tree.needsRebuild())
+			_tree = new SegmentNodeRTree(asUniqueSegmentList());
+		return _tree;
+	}
+
+	/**
+	 * Gets the number of connected components, taking every edge as
+	 * undirected. Each point counts, including points without edges and points
+	 * which are only the end of a directed edge.
+	 * 
+	 * @return number of connected components
+	 */
+	public int numComponents() {
+		return connectivity().numComponents();
+	}
+
+	/**
+	 * @return true if every point can be reached from every other; an empty
+	 *         database is connected.
+	 */
+	public boolean isConnected() {
+		return numComponents() <= 1;
+	}
+
+	/**
+	 * @param point1
+	 * @param point2
+	 * @return true if both points are in the database and a path of edges
+	 *         joins them.
+	 */
+	public boolean connected(PointNode point1, PointNode point2) {
+		return connectivity().connected(point1, point2);
+	}
+
+	/**
+	 * Gets the segments which closed a cycle when they were added: those whose
+	 * endpoints were already connected. Removing them all leaves a spanning
+	 * forest, and there are as many as independent cycles. A point joined to
+	 * itself is a cycle of its own. Segments already present when the
+	 * components were first needed count as added in the order
+	 * asUniqueSegmentList lists them.
+	 * 
+	 * @return the segments, in the order they were added
+	 */
+	public List<SegmentNode> cycleClosingSegments() {
+		return new ArrayList<SegmentNode>(connectivity().cycleClosing());
+	}
+
+	/**
+	 * Finds a basis of the cycles: one cycle for each cycle-closing segment,
+	 * formed by a segment outside a breadth-first spanning forest and the
+	 * forest path between its ends. Every cycle in the figure can be made by
+	 * combining these.
+	 * 
+	 * @return the cycles, each as its points in order around it, without
+	 *         repeating the first
+	 */
+	public List<List<PointNode>> cycleBasis() {
+		return SegmentNodeConnectivity.cycleBasis(this);
+	}
+
+	/**
+	 * Counts the triangles: sets of three distinct points joined pairwise by
+	 * edges, in either direction.
+	 * 
+	 * @return number of triangles
+	 */
+	public long numTriangles() {
+		return new SegmentNodeTriangles(this).count(null);
+	}
+
+	/**
+	 * Counts the triangles as numTriangles() does, handling points in parallel.
+	 * 
+	 * @param pool pool to run on
+	 * @return number of triangles
+	 */
+	public long numTriangles(ForkJoinPool pool) {
+		return new SegmentNodeTriangles(this).count(pool);
+	}
+
+	/**
+	 * Lists the triangles: sets of three distinct points joined pairwise by
+	 * edges, in either direction.
+	 * 
+	 * @return each triangle once, as its three points
+	 */
+	public List<PointNode[]> triangles() {
+		return new SegmentNodeTriangles(this).list(null);
+	}
+
+	/**
+	 * Lists the triangles as triangles() does, handling points in parallel;
+	 * the list is in the same order.
+	 * 
+	 * @param pool pool to run on
+	 * @return each triangle once, as its three points
+	 */
+	public List<PointNode[]> triangles(ForkJoinPool pool) {
+		return new SegmentNodeTriangles(this).list(pool);
+	}
+
+	/**
+	 * @return the connected components, building them on first use.
+	 */
+	SegmentNodeConnectivity connectivity() {
+		if (_connectivity == null)
+			_connectivity = new SegmentNodeConnectivity(this);
+		return _connectivity;
+	}
+
+	/**
+	 * Finds every point where segments cross, where an endpoint lies inside
+	 * another segment, or where collinear segments overlap; segments which
+	 * only share an endpoint do not intersect.
+	 * 
+	 * @return the intersections, ordered by x, then y
+	 */
+	public List<SegmentIntersection> intersections() {
+		return intersections(null);
+	}
+
+	/**
+	 * Finds the intersections as intersections() does, adding each new
+	 * intersection point to the given database as an unnamed point.
+	 * 
+	 * @param points database of the figure's points
+	 * @return the intersections, ordered by x, then y
+	 */
+	public List<SegmentIntersection> intersections(PointNodeDatabase points) {
+		return new SegmentIntersector(this).run(points);
+	}
+
+	/**
+	 * Merges collinear segments: each maximal run of segments on one line
+	 * which overlap or meet end to end becomes a single segment between the
+	 * run's outermost points. Other segments are copied. Edges are taken as
+	 * undirected.
+	 * 
+	 * @return a new database of the merged segments
+	 */
+	public SegmentNodeDatabase mergeCollinear() {
+		return new CollinearSegments(this).merge();
+	}
+
+	/**
+	 * Splits collinear segments: each segment is cut at every endpoint of
+	 * another segment on its line lying inside it, and at every point of the
+	 * given database lying inside it. Overlapping segments leave one copy of
+	 * each shared piece. Edges are taken as undirected.
+	 * 
+	 * @param points if not null, further points to split at, such as the
+	 *               figure's points
+	 * @return a new database of the pieces
+	 */
+	public SegmentNodeDatabase splitCollinear(PointNodeDatabase points) {
+		return new CollinearSegments(this).split(points);
+	}
+
+	/**
+	 * Copies the database into an immutable, int-indexed snapshot for reading;
+	 * later changes to the database do not affect the snapshot.
+	 * 
+	 * @return the snapshot
+	 */
+	public FrozenSegmentNodeDatabase freeze() {
+		return new FrozenSegmentNodeDatabase(this);
+	}
+
 	public static SegmentNodeDatabase fromJson(Object json, PointNodeDatabase points) {
 		JSONArray JSONsegments = (JSONArray) json;
 		SegmentNodeDatabase segments = new SegmentNodeDatabase();
@@ -172,16 +591,12 @@ public class SegmentNodeDatabase implements ComponentNode {
 
 	@Override
 	public void unparse(StringBuilder sb, int level) {
-		sb.append(StringUtilities.indent(level) + "{\n");
-		for (Map.Entry<PointNode, Set<PointNode>> entry : _adjLists.entrySet()) {
-			sb.append(StringUtilities.indent(level + 1) + entry.getKey().getName());
-			sb.append(" :");
-			for(PointNode value : entry.getValue()) {
-				sb.append(" " + value.getName());
-			}
-			sb.append("\n");
-		}
-		sb.append(StringUtilities.indent(level) + "}\n");
+		new UnparseVisitor(sb).unparse(this, level);
+	}
+
+	@Override
+	public <R, C> R accept(ComponentNodeVisitor<R, C> visitor, C context) {
+		return visitor.visitSegmentDatabaseNode(this, context);
 	}
 
 }
@@ -0,0 +1,387 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * An R-tree over the segments of a SegmentNodeDatabase, used for window,
+ * distance and nearest segment queries.
+ * <p>
+ * Leaves hold segments, every node holds the bounding box of everything below
+ * it, and no node has more than MAX_ENTRIES children. The tree is bulk-loaded
+ * by Sort-Tile-Recursive packing, which fills nearly every node, and then
+ * extended one segment at a time, splitting overfull nodes in half along
+ * their wider side; once as many segments have been inserted as were
+ * bulk-loaded, the tree asks to be rebuilt so that it stays tightly packed.
+ */
+class SegmentNodeRTree {
+	private static final int MAX_ENTRIES = 16;
+
+	/**
+	 * An axis-aligned bounding box, empty until something is included in it.
+	 */
+	private static class Box {
+		double _minX = Double.POSITIVE_INFINITY;
+		double _minY = Double.POSITIVE_INFINITY;
+		double _maxX = Double.NEGATIVE_INFINITY;
+		double _maxY = Double.NEGATIVE_INFINITY;
+
+		void include(Box other) {
+			_minX = Math.min(_minX, other._minX);
+			_minY = Math.min(_minY, other._minY);
+			_maxX = Math.max(_maxX, other._maxX);
+			_maxY = Math.max(_maxY, other._maxY);
+		}
+
+		double centerX() {
+			return (_minX + _maxX) / 2;
+		}
+
+		double centerY() {
+			return (_minY + _maxY) / 2;
+		}
+
+		double area() {
+			return (_maxX - _minX) * (_maxY - _minY);
+		}
+
+		/**
+		 * @return the area of this box grown to include the other.
+		 */
+		double enlargedArea(Box other) {
+			return (Math.max(_maxX, other._maxX) - Math.min(_minX, other._minX))
+					* (Math.max(_maxY, other._maxY) - Math.min(_minY, other._minY));
+		}
+
+		boolean intersects(double minX, double minY, double maxX, double maxY) {
+			return _minX <= maxX && _maxX >= minX && _minY <= maxY && _maxY >= minY;
+		}
+
+		/**
+		 * @return the squared distance from (x, y) to the nearest point of the
+		 *         box; a lower bound for everything inside it.
+		 */
+		double distanceSquared(double x, double y) {
+			double dx = Math.max(Math.max(_minX - x, x - _maxX), 0);
+			double dy = Math.max(Math.max(_minY - y, y - _maxY), 0);
+			return dx * dx + dy * dy;
+		}
+	}
+
+	/**
+	 * A segment, boxed.
+	 */
+	private static class Entry extends Box {
+		final SegmentNode _segment;
+		final double _x1;
+		final double _y1;
+		final double _x2;
+		final double _y2;
+
+		Entry(SegmentNode segment) {
+			_segment = segment;
+			_x1 = segment.getPoint1().getX();
+			_y1 = segment.getPoint1().getY();
+			_x2 = segment.getPoint2().getX();
+			_y2 = segment.getPoint2().getY();
+			_minX = Math.min(_x1, _x2);
+			_minY = Math.min(_y1, _y2);
+			_maxX = Math.max(_x1, _x2);
+			_maxY = Math.max(_y1, _y2);
+		}
+
+		/**
+		 * @return true if the segment itself, not just its box, touches the
+		 *         given box.
+		 */
+		boolean crosses(double minX, double minY, double maxX, double maxY) {
+			if (!intersects(minX, minY, maxX, maxY))
+				return false;
+			// with the boxes overlapping, the segment misses the box only if
+			// all four corners lie strictly on one side of its line
+			double s1 = side(minX, minY);
+			double s2 = side(maxX, minY);
+			double s3 = side(maxX, maxY);
+			double s4 = side(minX, maxY);
+			return !(s1 > 0 && s2 > 0 && s3 > 0 && s4 > 0) && !(s1 < 0 && s2 < 0 && s3 < 0 && s4 < 0);
+		}
+
+		private double side(double x, double y) {
+			return (_x2 - _x1) * (y - _y1) - (_y2 - _y1) * (x - _x1);
+		}
+
+		/**
+		 * @return the squared distance from (x, y) to the nearest point of the
+		 *         segment.
+		 */
+		@Override
+		double distanceSquared(double x, double y) {
+			double dx = _x2 - _x1;
+			double dy = _y2 - _y1;
+			double lengthSquared = dx * dx + dy * dy;
+			double t = lengthSquared == 0 ? 0 : ((x - _x1) * dx + (y - _y1) * dy) / lengthSquared;
+			t = Math.max(0, Math.min(1, t));
+			double ex = _x1 + t * dx - x;
+			double ey = _y1 + t * dy - y;
+			return ex * ex + ey * ey;
+		}
+	}
+
+	private static class Node extends Box {
+		final boolean _leaf;
+		// one spare slot, so that a node can overflow before it is split
+		final Box[] _children;
+		int _count;
+
+		Node(boolean leaf) {
+			_leaf = leaf;
+			_children = new Box[MAX_ENTRIES + 1];
+		}
+
+		void add(Box child) {
+			_children[_count++] = child;
+			include(child);
+		}
+
+		void recomputeBox() {
+			_minX = Double.POSITIVE_INFINITY;
+			_minY = Double.POSITIVE_INFINITY;
+			_maxX = Double.NEGATIVE_INFINITY;
+			_maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < _count; i++)
+				include(_children[i]);
+		}
+	}
+
+	/**
+	 * A node or entry waiting in the nearest segment search.
+	 */
+	private static class Candidate {
+		final Box _box;
+		final double _distanceSquared;
+
+		Candidate(Box box, double distanceSquared) {
+			_box = box;
+			_distanceSquared = distanceSquared;
+		}
+	}
+
+	private static final Comparator<Box> BY_CENTER_X = Comparator.comparingDouble(Box::centerX);
+	private static final Comparator<Box> BY_CENTER_Y = Comparator.comparingDouble(Box::centerY);
+
+	private Node _root;
+	private int _size;
+	private int _builtSize;
+
+	/**
+	 * Bulk-loads a tree over the given segments.
+	 *
+	 * @param segments Segments to index.
+	 */
+	SegmentNodeRTree(List<SegmentNode> segments) {
+		List<Box> boxes = new ArrayList<Box>(segments.size());
+		for (SegmentNode segment : segments)
+			boxes.add(new Entry(segment));
+		_size = boxes.size();
+		_builtSize = _size;
+
+		boolean leaf = true;
+		while (boxes.size() > 1 || leaf) {
+			boxes = pack(boxes, leaf);
+			leaf = false;
+		}
+		_root = boxes.isEmpty() ? new Node(true) : (Node) boxes.get(0);
+	}
+
+	/**
+	 * @return true if enough segments were inserted since the bulk load that
+	 *         the tree should be rebuilt.
+	 */
+	boolean needsRebuild() {
+		return _size - _builtSize > Math.max(_builtSize, 16);
+	}
+
+	/**
+	 * @return the number of segments in the tree.
+	 */
+	int size() {
+		return _size;
+	}
+
+	/**
+	 * Inserts a segment into the tree.
+	 *
+	 * @param segment Segment to insert.
+	 */
+	void insert(SegmentNode segment) {
+		Node sibling = insert(_root, new Entry(segment));
+		if (sibling != null) {
+			Node root = new Node(false);
+			root.add(_root);
+			root.add(sibling);
+			_root = root;
+		}
+		_size++;
+	}
+
+	/**
+	 * Passes every segment touching the given axis-aligned box to the consumer.
+	 */
+	void withinBox(double minX, double minY, double maxX, double maxY, Consumer<SegmentNode> consumer) {
+		Node[] nodes = new Node[16];
+		nodes[0] = _root;
+		int top = 1;
+
+		while (top > 0) {
+			Node node = nodes[--top];
+			for (int i = 0; i < node._count; i++) {
+				Box child = node._children[i];
+				if (node._leaf) {
+					if (((Entry) child).crosses(minX, minY, maxX, maxY))
+						consumer.accept(((Entry) child)._segment);
+				} else if (child.intersects(minX, minY, maxX, maxY)) {
+					if (top == nodes.length)
+						nodes = Arrays.copyOf(nodes, nodes.length * 2);
+					nodes[top++] = (Node) child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Passes every segment within the given distance of (x, y) to the consumer.
+	 */
+	void withinDistance(double x, double y, double distance, Consumer<SegmentNode> consumer) {
+		double distanceSquared = distance * distance;
+		Node[] nodes = new Node[16];
+		nodes[0] = _root;
+		int top = 1;
+
+		while (top > 0) {
+			Node node = nodes[--top];
+			for (int i = 0; i < node._count; i++) {
+				Box child = node._children[i];
+				if (child.distanceSquared(x, y) > distanceSquared)
+					continue;
+				if (node._leaf)
+					consumer.accept(((Entry) child)._segment);
+				else {
+					if (top == nodes.length)
+						nodes = Arrays.copyOf(nodes, nodes.length * 2);
+					nodes[top++] = (Node) child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the segment closest to (x, y), searching nodes in order of their
+	 * distance from it.
+	 *
+	 * @return the closest segment, or null if the tree is empty.
+	 */
+	SegmentNode nearest(double x, double y) {
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>(
+				Comparator.comparingDouble((Candidate c) -> c._distanceSquared));
+		queue.add(new Candidate(_root, _root.distanceSquared(x, y)));
+
+		while (!queue.isEmpty()) {
+			// an entry comes out only when nothing left can be closer
+			Box box = queue.poll()._box;
+			if (box instanceof Entry)
+				return ((Entry) box)._segment;
+			Node node = (Node) box;
+			for (int i = 0; i < node._count; i++)
+				queue.add(new Candidate(node._children[i], node._children[i].distanceSquared(x, y)));
+		}
+		return null;
+	}
+
+	/**
+	 * Inserts an entry below the given node, following the child whose box
+	 * grows least.
+	 *
+	 * @return the new sibling of the node if it had to be split, else null.
+	 */
+	private Node insert(Node node, Entry entry) {
+		if (node._leaf)
+			node.add(entry);
+		else {
+			node.include(entry);
+			Node child = chooseChild(node, entry);
+			Node sibling = insert(child, entry);
+			if (sibling != null)
+				node.add(sibling);
+		}
+		return node._count > MAX_ENTRIES ? split(node) : null;
+	}
+
+	private static Node chooseChild(Node node, Entry entry) {
+		Node best = null;
+		double bestEnlargement = Double.POSITIVE_INFINITY;
+		double bestArea = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < node._count; i++) {
+			Node child = (Node) node._children[i];
+			double area = child.area();
+			double enlargement = child.enlargedArea(entry) - area;
+			if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+				best = child;
+				bestEnlargement = enlargement;
+				bestArea = area;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Moves the upper half of an overfull node's children, ordered along the
+	 * node's wider side, into a new sibling.
+	 *
+	 * @return the sibling.
+	 */
+	private static Node split(Node node) {
+		Comparator<Box> order = node._maxX - node._minX >= node._maxY - node._minY ? BY_CENTER_X : BY_CENTER_Y;
+		Arrays.sort(node._children, 0, node._count, order);
+
+		Node sibling = new Node(node._leaf);
+		int half = node._count / 2;
+		for (int i = half; i < node._count; i++) {
+			sibling.add(node._children[i]);
+			node._children[i] = null;
+		}
+		node._count = half;
+		node.recomputeBox();
+		return sibling;
+	}
+
+	/**
+	 * Packs one level of the tree: sorts the boxes by x into vertical slices,
+	 * sorts each slice by y, and groups runs of MAX_ENTRIES boxes into nodes.
+	 *
+	 * @return the nodes, which make up the next level up.
+	 */
+	private static List<Box> pack(List<Box> boxes, boolean leaf) {
+		int n = boxes.size();
+		int numNodes = (n + MAX_ENTRIES - 1) / MAX_ENTRIES;
+		int numSlices = (int) Math.ceil(Math.sqrt(numNodes));
+		int sliceSize = numSlices * MAX_ENTRIES;
+
+		boxes.sort(BY_CENTER_X);
+		List<Box> nodes = new ArrayList<Box>(numNodes);
+		for (int start = 0; start < n; start += sliceSize) {
+			List<Box> slice = boxes.subList(start, Math.min(start + sliceSize, n));
+			slice.sort(BY_CENTER_Y);
+			for (int i = 0; i < slice.size(); i += MAX_ENTRIES) {
+				Node node = new Node(leaf);
+				for (int j = i; j < Math.min(i + MAX_ENTRIES, slice.size()); j++)
+					node.add(slice.get(j));
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,147 @@
+package input.components.segment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import input.components.point.PointNode;
+
+/**
+ * Counts and lists the triangles of a SegmentNodeDatabase: sets of three
+ * distinct points joined pairwise by segments, in either direction.
+ * <p>
+ * Each segment is oriented from the endpoint of lower degree to the one of
+ * higher degree (ties broken by index), so every triangle is found exactly
+ * once, from its lowest point, and no point has more than about sqrt(2E)
+ * outgoing segments; the whole pass takes O(E^1.5). For each point u, its
+ * outgoing neighbors are marked in a long[] bitset; then for each outgoing
+ * neighbor v, the outgoing neighbors of v are tested against the marks, which
+ * intersects the two neighborhoods in O(out(v)) without hashing. Runs of
+ * points can be handled in parallel, each with a bitset of its own.
+ */
+class SegmentNodeTriangles {
+	private final FrozenSegmentNodeDatabase _frozen;
+
+	// outgoing neighbors of each point, after orientation
+	private final int[][] _out;
+
+	SegmentNodeTriangles(SegmentNodeDatabase database) {
+		_frozen = database.freeze();
+		int[][] neighbors = _frozen.undirectedNeighbors();
+		int n = neighbors.length;
+
+		_out = new int[n][];
+		for (int u = 0; u < n; u++) {
+			int count = 0;
+			for (int v : neighbors[u])
+				if (before(neighbors, u, v))
+					count++;
+			_out[u] = new int[count];
+			count = 0;
+			for (int v : neighbors[u])
+				if (before(neighbors, u, v))
+					_out[u][count++] = v;
+		}
+	}
+
+	/**
+	 * @param pool pool to run on, or null to run on the calling thread
+	 * @return the number of triangles
+	 */
+	long count(ForkJoinPool pool) {
+		if (pool == null)
+			return countRange(0, _out.length);
+		int chunks = numChunks(pool);
+		return pool.submit(() -> IntStream.range(0, chunks).parallel()
+				.mapToLong(c -> countRange(chunkStart(c, chunks), chunkStart(c + 1, chunks))).sum()).join();
+	}
+
+	/**
+	 * @param pool pool to run on, or null to run on the calling thread
+	 * @return the triangles, each as its three points, in the same order
+	 *         whether run in parallel or not
+	 */
+	List<PointNode[]> list(ForkJoinPool pool) {
+		if (pool == null)
+			return listRange(0, _out.length);
+		int chunks = numChunks(pool);
+		return pool.submit(() -> IntStream.range(0, chunks).parallel()
+				.mapToObj(c -> listRange(chunkStart(c, chunks), chunkStart(c + 1, chunks)))
+				.flatMap(List::stream).collect(Collectors.toList())).join();
+	}
+
+	/**
+	 * @return the number of runs of points to split the work into; several per
+	 *         thread, as points differ widely in cost.
+	 */
+	private int numChunks(ForkJoinPool pool) {
+		return Math.max(1, Math.min(_out.length, pool.getParallelism() * 8));
+	}
+
+	private int chunkStart(int chunk, int chunks) {
+		return (int) ((long) _out.length * chunk / chunks);
+	}
+
+	/**
+	 * Counts the triangles whose lowest point is in [from, to).
+	 */
+	private long countRange(int from, int to) {
+		long[] marks = new long[(_out.length + 63) >>> 6];
+		long count = 0;
+		for (int u = from; u < to; u++) {
+			if (_out[u].length < 2)
+				continue;
+			mark(u, marks);
+			for (int v : _out[u])
+				for (int w : _out[v])
+					if ((marks[w >>> 6] & (1L << w)) != 0)
+						count++;
+			unmark(u, marks);
+		}
+		return count;
+	}
+
+	/**
+	 * Lists the triangles whose lowest point is in [from, to).
+	 */
+	private List<PointNode[]> listRange(int from, int to) {
+		long[] marks = new long[(_out.length + 63) >>> 6];
+		List<PointNode[]> triangles = new ArrayList<PointNode[]>();
+		for (int u = from; u < to; u++) {
+			if (_out[u].length < 2)
+				continue;
+			mark(u, marks);
+			for (int v : _out[u])
+				for (int w : _out[v])
+					if ((marks[w >>> 6] & (1L << w)) != 0)
+						triangles.add(new PointNode[] { _frozen.getPoint(u), _frozen.getPoint(v), _frozen.getPoint(w) });
+			unmark(u, marks);
+		}
+		return triangles;
+	}
+
+	private void mark(int u, long[] marks) {
+		for (int v : _out[u])
+			marks[v >>> 6] |= 1L << v;
+	}
+
+	private void unmark(int u, long[] marks) {
+		for (int v : _out[u])
+			marks[v >>> 6] = 0;
+	}
+
+	/**
+	 * @return true if the segment u-v is oriented from u to v: u has the lower
+	 *         degree, or the same degree and the lower index. Loops are left
+	 *         out.
+	 */
+	private static boolean before(int[][] neighbors, int u, int v) {
+		if (u == v)
+			return false;
+		int degreeU = neighbors[u].length;
+		int degreeV = neighbors[v].length;
+		return degreeU < degreeV || (degreeU == degreeV && u < v);
+	}
+}
@@ -0,0 +1,78 @@
+package input.components.segment;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import input.components.point.PointNode;
+
+/**
+ * Walks the edges of a SegmentNodeDatabase's adjacency lists, creating a
+ * SegmentNode only for each edge it reaches. Splitting hands a run of whole
+ * adjacency lists to the new spliterator, so the edges of one list are never
+ * divided.
+ */
+class SegmentSpliterator implements Spliterator<SegmentNode> {
+	private final SegmentNodeDatabase _database;
+	private final Spliterator<AdjacencyList> _lists;
+	private final boolean _unique;
+
+	private AdjacencyList _current;
+	private Iterator<PointNode> _neighbors;
+
+	// moves to the next list; kept, rather than created per list
+	private final Consumer<AdjacencyList> _advance = adjacencyList -> {
+		_current = adjacencyList;
+		_neighbors = adjacencyList._neighbors.iterator();
+	};
+
+	/**
+	 * @param database owner of the adjacency lists
+	 * @param lists    adjacency lists to walk
+	 * @param unique   if true, each undirected edge is passed on once, as
+	 *                 forEachUniqueSegment does
+	 */
+	SegmentSpliterator(SegmentNodeDatabase database, Spliterator<AdjacencyList> lists, boolean unique) {
+		_database = database;
+		_lists = lists;
+		_unique = unique;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super SegmentNode> action) {
+		while (true) {
+			while (_neighbors != null && _neighbors.hasNext()) {
+				PointNode point = _neighbors.next();
+				if (!_unique || !_database.seenEarlier(_current, point)) {
+					action.accept(new SegmentNode(_current._point, point));
+					return true;
+				}
+			}
+			if (!_lists.tryAdvance(_advance))
+				return false;
+		}
+	}
+
+	@Override
+	public Spliterator<SegmentNode> trySplit() {
+		// the lists split off come before the one under way
+		if (_neighbors != null && _neighbors.hasNext())
+			return null;
+		Spliterator<AdjacencyList> prefix = _lists.trySplit();
+		return prefix != null ? new SegmentSpliterator(_database, prefix, _unique) : null;
+	}
+
+	/**
+	 * @return the number of adjacency lists left, as the number of edges is
+	 *         not known in advance.
+	 */
+	@Override
+	public long estimateSize() {
+		return _lists.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+}
@@ -0,0 +1,72 @@
+package input.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import input.components.FigureNode;
+import input.visitor.BinaryWriterVisitor;
+import utilities.io.FileUtilities;
+
+/**
+ * Converts figure files from JSON to the binary format of BinaryFigureFormat.
+ *
+ * Usage: BinaryFigureConverter output-directory [JSON files or directories]
+ *
+ * Every .json file named, or directly inside a directory named, is written to
+ * the output directory under the same name with the binary extension. With no
+ * files named, the files in testFiles are converted.
+ */
+public class BinaryFigureConverter {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: BinaryFigureConverter output-directory [JSON files or directories]");
+			System.exit(1);
+		}
+
+		File output = new File(args[0]);
+		if (!output.isDirectory() && !output.mkdirs()) {
+			System.err.println("Cannot create " + output);
+			System.exit(1);
+		}
+
+		List<File> inputs = new ArrayList<>();
+		if (args.length == 1)
+			addJsonFiles(new File("testFiles"), inputs);
+		for (int i = 1; i < args.length; i++)
+			addJsonFiles(new File(args[i]), inputs);
+
+		JSONParser parser = new JSONParser();
+		for (File input : inputs) {
+			List<FigureNode> figures = parser.parseFigures(FileUtilities.readFileFilterComments(input.getPath()));
+			String name = input.getName();
+			File converted = new File(output,
+					name.substring(0, name.length() - ".json".length()) + BinaryFigureFormat.FILE_EXTENSION);
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(converted))) {
+				new BinaryWriterVisitor(out).write(figures);
+			}
+			System.out.println(input + " -> " + converted + " (" + figures.size() + " figures, "
+					+ input.length() + " -> " + converted.length() + " bytes)");
+		}
+	}
+
+	private static void addJsonFiles(File file, List<File> inputs) {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files == null)
+				return;
+			Arrays.sort(files);
+			for (File child : files)
+				if (child.isFile() && child.getName().endsWith(".json"))
+					inputs.add(child);
+		} else if (file.getName().endsWith(".json"))
+			inputs.add(file);
+		else
+			System.err.println("Skipping " + file + ", which is not a .json file");
+	}
+}
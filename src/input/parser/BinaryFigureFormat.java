@@ -0,0 +1,31 @@
+package input.parser;
+
+/**
+ * Constants of the binary figure format, written by BinaryWriterVisitor and
+ * read by BinaryFigureParser. All numbers are little-endian.
+ *
+ * <pre>
+ * file     := magic "GFIG", u16 version, u16 flags (0), u32 figure count,
+ *             figure*
+ * figure   := string description,
+ *             varint n, f64 x[n], f64 y[n], string name[n],
+ *             varint list count, list*
+ * list     := varint point, varint k, varint neighbor[k]
+ * string   := varint (byte length + 1, or 0 for null), UTF-8 bytes
+ * varint   := unsigned LEB128: 7 bits per byte, low bits first
+ * </pre>
+ *
+ * Coordinates are stored as columns of raw doubles, so they read back exactly
+ * and without conversion. Points are referred to by their index in the point
+ * table. Segments are stored once each, in rows of a point and its neighbors,
+ * in an order which addUndirectedEdge builds back into the same adjacency
+ * lists.
+ */
+public class BinaryFigureFormat {
+	public static final byte[] MAGIC = { 'G', 'F', 'I', 'G' };
+
+	// readers reject files of a later version than their own
+	public static final short VERSION = 1;
+
+	public static final String FILE_EXTENSION = ".gfig";
+}
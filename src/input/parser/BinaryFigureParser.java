@@ -0,0 +1,184 @@
+package input.parser;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import input.builder.DefaultBuilder;
+import input.builder.GeometryBuilder;
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
+import input.exception.ParseException;
+
+/**
+ * Loads FigureNodes from the binary format of BinaryFigureFormat.
+ *
+ * Files are memory-mapped and read in place: coordinates are raw doubles and
+ * segments are point indexes, so the only text decoded is the names and
+ * descriptions. As with JSONParser, points and segments are passed to a
+ * builder as they are read.
+ */
+public class BinaryFigureParser {
+	// receives each point, segment and figure as it is read
+	protected DefaultBuilder _builder;
+
+	public BinaryFigureParser() {
+		this(new GeometryBuilder());
+	}
+
+	/**
+	 * @param builder Builder which decides what, if anything, is constructed
+	 *                from the file.
+	 */
+	public BinaryFigureParser(DefaultBuilder builder) {
+		_builder = builder;
+	}
+
+	private ParseException error(String message) {
+		return new ParseException("Parse error: " + message);
+	}
+
+	/**
+	 * Memory-maps the file and loads its figures.
+	 *
+	 * @param filepath path of a file in the binary figure format
+	 * @return the FigureNodes produced by the builder, in file order
+	 * @throws ParseException if the file cannot be read or is not a figure file
+	 *                        of a supported version
+	 */
+	public List<FigureNode> parseFile(String filepath) throws ParseException {
+		try (FileChannel channel = FileChannel.open(Path.of(filepath), StandardOpenOption.READ)) {
+			return parseFigures(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ParseException("Parse error: cannot read " + filepath, e);
+		}
+	}
+
+	/**
+	 * Loads a file holding a single figure.
+	 *
+	 * @throws ParseException if the bytes are not a figure file of a supported
+	 *                        version, or hold other than one figure
+	 */
+	public FigureNode parse(ByteBuffer bytes) throws ParseException {
+		List<FigureNode> figures = parseFigures(bytes);
+		if (figures.size() != 1)
+			throw error("expected one figure, found " + figures.size());
+		return figures.get(0);
+	}
+
+	/**
+	 * Loads every figure in the bytes, from index 0 to the limit; the buffer's
+	 * own position and byte order are left as they are.
+	 *
+	 * @return the FigureNodes produced by the builder, in file order
+	 * @throws ParseException if the bytes are not a figure file of a supported
+	 *                        version
+	 */
+	public List<FigureNode> parseFigures(ByteBuffer bytes) throws ParseException {
+		ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(0);
+		try {
+			for (byte b : BinaryFigureFormat.MAGIC)
+				if (buffer.get() != b)
+					throw error("not a binary figure file");
+			int version = buffer.getShort();
+			if (version < 1 || version > BinaryFigureFormat.VERSION)
+				throw error("unsupported binary figure version " + version);
+			buffer.getShort();
+			int count = buffer.getInt();
+			if (count < 0)
+				throw error("negative figure count");
+
+			List<FigureNode> figures = new ArrayList<>();
+			byte[] scratch = new byte[64];
+			for (int i = 0; i < count; i++)
+				figures.add(parseFigure(buffer, scratch));
+			if (buffer.hasRemaining())
+				throw error(buffer.remaining() + " bytes after the last figure");
+			return figures;
+		} catch (BufferUnderflowException e) {
+			throw new ParseException("Parse error: file is truncated", e);
+		}
+	}
+
+	private FigureNode parseFigure(ByteBuffer buffer, byte[] scratch) {
+		String description = readString(buffer, scratch);
+
+		int n = readVarint(buffer);
+		// the columns of coordinates, read in place
+		int xs = buffer.position();
+		int ys = xs + 8 * n;
+		if (n > buffer.remaining() / 16)
+			throw new BufferUnderflowException();
+		buffer.position(ys + 8 * n);
+
+		PointNodeDatabase points = _builder.buildPointDatabaseNode(new ArrayList<>());
+		PointNode[] table = new PointNode[n];
+		for (int i = 0; i < n; i++) {
+			String name = readString(buffer, scratch);
+			table[i] = _builder.buildPointNode(name, buffer.getDouble(xs + 8 * i), buffer.getDouble(ys + 8 * i));
+			if (table[i] != null)
+				_builder.addPointToDatabase(points, table[i]);
+		}
+
+		SegmentNodeDatabase segments = _builder.buildSegmentNodeDatabase();
+		int rows = readVarint(buffer);
+		for (int row = 0; row < rows; row++) {
+			PointNode root = table[readIndex(buffer, n)];
+			int k = readVarint(buffer);
+			for (int i = 0; i < k; i++)
+				_builder.addSegmentToDatabase(segments, root, table[readIndex(buffer, n)]);
+		}
+
+		return _builder.buildFigureNode(description, points, segments);
+	}
+
+	private int readIndex(ByteBuffer buffer, int n) {
+		int index = readVarint(buffer);
+		if (index >= n)
+			throw error("point index " + index + " out of " + n + " points");
+		return index;
+	}
+
+	/**
+	 * @return the string at the buffer's position, copied out through the
+	 *         scratch array, or a new one if it is too short.
+	 */
+	private String readString(ByteBuffer buffer, byte[] scratch) {
+		int length = readVarint(buffer);
+		if (length == 0)
+			return null;
+		length--;
+		if (length > buffer.remaining())
+			throw new BufferUnderflowException();
+		byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the unsigned LEB128 number at the buffer's position.
+	 */
+	private int readVarint(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buffer.get();
+			// the fifth byte holds bits 28 to 30, and ends the number
+			if (shift == 28 && (b & 0xF8) != 0)
+				throw error("number out of range");
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+}
@@ -11,16 +11,63 @@ import org.json.JSONObject;
  * @date 2/14/2023
  */
 
-import org.json.JSONTokener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import org.json.JSONArray;
+
+import input.builder.DefaultBuilder;
+import input.builder.GeometryBuilder;
 import input.components.*;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
 import input.exception.ParseException;
 
 public class JSONParser {
 	protected ComponentNode _astRoot;
 
+	// receives each point, segment and figure as it is read
+	protected DefaultBuilder _builder;
+
+	// pool on which the figures of a "Figures" array are built
+	protected ForkJoinPool _pool;
+
 	public JSONParser() {
+		this(new GeometryBuilder());
+	}
+
+	/**
+	 * @param pool Pool on which parseFigures builds figures; its parallelism
+	 *             bounds how many figures are built at once.
+	 */
+	public JSONParser(ForkJoinPool pool) {
+		this(new GeometryBuilder(), pool);
+	}
+
+	/**
+	 * @param builder Builder which decides what, if anything, is constructed
+	 *                from the parsed text. A DefaultBuilder constructs nothing,
+	 *                so parsing only checks the text against the figure schema.
+	 */
+	public JSONParser(DefaultBuilder builder) {
+		this(builder, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param builder Builder which decides what is constructed; parseFigures
+	 *                calls it from several threads at once.
+	 * @param pool    Pool on which parseFigures builds figures.
+	 */
+	public JSONParser(DefaultBuilder builder, ForkJoinPool pool) {
 		_astRoot = null;
+		_builder = builder;
+		_pool = pool;
 	}
 
 	private ParseException error(String message) {
@@ -28,20 +75,301 @@ public class JSONParser {
 	}
 
 	public ComponentNode parse(String str) throws ParseException {
-		// Parsing is accomplished via the JSONTokenizer class.
-		JSONTokener tokenizer = new JSONTokener(str);
-		JSONObject JSONroot = (JSONObject) tokenizer.nextValue();
+		return parse((CharSequence) str);
+	}
 
-		try {
-			return parse(JSONroot);
-		} catch (Exception e) {
-			throw error(e.getMessage());
+	/**
+	 * Parses a figure in a single pass over the text, passing points and
+	 * segments to the builder as they are read; no JSONObject tree is built.
+	 * 
+	 * @param json JSON text containing a top-level "Figure" object
+	 * @return the FigureNode produced by the builder
+	 * @throws ParseException if the text is not valid JSON or does not follow
+	 *                        the figure schema
+	 */
+	public ComponentNode parse(CharSequence json) throws ParseException {
+		JSONPullReader reader = new JSONPullReader(json);
+		FigureNode figure = null;
+		boolean found = false;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (JSON_Constants.JSON_FIGURE.equals(reader.nextName())) {
+				figure = parseFigure(reader);
+				found = true;
+			} else {
+				reader.skipValue();
+			}
 		}
+		reader.endObject();
+		reader.endDocument();
+
+		if (!found)
+			throw error("missing \"" + JSON_Constants.JSON_FIGURE + "\"");
+		return figure;
 	}
 
+	/**
+	 * Parses an already-materialized JSON document.
+	 * 
+	 * @param JSONroot JSON document containing a top-level "Figure" object
+	 * @return the parsed FigureNode
+	 */
 	public ComponentNode parse(JSONObject JSONroot) {
 		JSONObject JSONfigure = (JSONObject) JSONroot.get("Figure");
 
 		return FigureNode.fromJson(JSONfigure);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Parses every figure in a document: a top-level "Figure" object, the
+	 * elements of a top-level "Figures" array, or both, in document order.
+	 * 
+	 * A sequential pass only finds where each figure's text begins and ends;
+	 * the figures themselves are then built in parallel on the parser's pool.
+	 * The text must therefore be safe to read from several threads.
+	 * 
+	 * @param json JSON text containing "Figure" and/or "Figures"
+	 * @return the FigureNodes produced by the builder, in the order they appear
+	 *         in the text
+	 * @throws ParseException if the text is not valid JSON or a figure does not
+	 *                        follow the figure schema
+	 */
+	public List<FigureNode> parseFigures(CharSequence json) throws ParseException {
+		JSONPullReader reader = new JSONPullReader(json);
+		// [start, end) offsets of each figure's text
+		List<int[]> ranges = new ArrayList<>();
+		boolean found = false;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (JSON_Constants.JSON_FIGURE.equals(name)) {
+				int start = reader.skipValue();
+				ranges.add(new int[] { start, reader.position() });
+				found = true;
+			} else if (JSON_Constants.JSON_FIGURE_S.equals(name)) {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					int start = reader.skipValue();
+					ranges.add(new int[] { start, reader.position() });
+				}
+				reader.endArray();
+				found = true;
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		reader.endDocument();
+
+		if (!found)
+			throw error("missing \"" + JSON_Constants.JSON_FIGURE + "\" or \"" + JSON_Constants.JSON_FIGURE_S + "\"");
+
+		List<ForkJoinTask<FigureNode>> tasks = new ArrayList<>(ranges.size());
+		for (int[] range : ranges)
+			tasks.add(_pool.submit(() -> parseFigure(new JSONPullReader(json, range[0], range[1]))));
+		return joinAll(tasks);
+	}
+
+	/**
+	 * Parses every figure in an already-materialized JSON document: the
+	 * top-level "Figure" object followed by the elements of the top-level
+	 * "Figures" array, built in parallel on the parser's pool.
+	 * 
+	 * @param JSONroot JSON document containing "Figure" and/or "Figures"
+	 * @return the parsed FigureNodes
+	 */
+	public List<FigureNode> parseFigures(JSONObject JSONroot) throws ParseException {
+		List<JSONObject> JSONfigures = new ArrayList<>();
+		if (JSONroot.has(JSON_Constants.JSON_FIGURE))
+			JSONfigures.add(JSONroot.getJSONObject(JSON_Constants.JSON_FIGURE));
+		if (JSONroot.has(JSON_Constants.JSON_FIGURE_S)) {
+			JSONArray array = JSONroot.getJSONArray(JSON_Constants.JSON_FIGURE_S);
+			for (int i = 0; i < array.length(); i++)
+				JSONfigures.add(array.getJSONObject(i));
+		}
+
+		if (JSONfigures.isEmpty())
+			throw error("missing \"" + JSON_Constants.JSON_FIGURE + "\" or \"" + JSON_Constants.JSON_FIGURE_S + "\"");
+
+		List<ForkJoinTask<FigureNode>> tasks = new ArrayList<>(JSONfigures.size());
+		for (JSONObject JSONfigure : JSONfigures)
+			tasks.add(_pool.submit(() -> FigureNode.fromJson(JSONfigure)));
+		return joinAll(tasks);
+	}
+
+	/**
+	 * Waits for every task in order. If one fails, the tasks not yet started
+	 * are cancelled and its exception is rethrown as is.
+	 */
+	private List<FigureNode> joinAll(List<ForkJoinTask<FigureNode>> tasks) {
+		List<FigureNode> figures = new ArrayList<>(tasks.size());
+		try {
+			for (ForkJoinTask<FigureNode> task : tasks)
+				figures.add(task.get());
+		} catch (ExecutionException e) {
+			cancelAll(tasks);
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new ParseException(e.getCause());
+		} catch (InterruptedException e) {
+			cancelAll(tasks);
+			Thread.currentThread().interrupt();
+			throw new ParseException("Parse error: interrupted", e);
+		}
+		return figures;
+	}
+
+	private static void cancelAll(List<ForkJoinTask<FigureNode>> tasks) {
+		for (ForkJoinTask<FigureNode> task : tasks)
+			task.cancel(false);
+	}
+
+	/**
+	 * What has been read of one figure so far.
+	 */
+	private static class FigureState {
+		PointNodeDatabase points;
+		SegmentNodeDatabase segments;
+		boolean hasPoints;
+		boolean hasSegments;
+
+		// names of points the builder did not store in a database, so that
+		// segments can still be checked against them
+		final Set<String> unstoredNames = new HashSet<>();
+
+		// adjacency lists read before the points they refer to
+		final List<String> pendingRoots = new ArrayList<>();
+		final List<List<String>> pendingAdjacent = new ArrayList<>();
+	}
+
+	/**
+	 * Parses the contents of a "Figure" object.
+	 */
+	private FigureNode parseFigure(JSONPullReader reader) {
+		String description = null;
+		FigureState state = new FigureState();
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (JSON_Constants.JSON_DESCRIPTION.equals(name)) {
+				description = reader.nextString();
+			} else if (JSON_Constants.JSON_POINT_S.equals(name)) {
+				parsePoints(reader, state);
+			} else if (JSON_Constants.JSON_SEGMENTS.equals(name)) {
+				parseSegments(reader, state);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (description == null)
+			throw error("figure is missing \"" + JSON_Constants.JSON_DESCRIPTION + "\"");
+		if (!state.hasPoints)
+			throw error("figure is missing \"" + JSON_Constants.JSON_POINT_S + "\"");
+		if (!state.hasSegments)
+			throw error("figure is missing \"" + JSON_Constants.JSON_SEGMENTS + "\"");
+
+		for (int i = 0; i < state.pendingRoots.size(); i++) {
+			PointNode root = resolve(state, state.pendingRoots.get(i));
+			for (String adjacentName : state.pendingAdjacent.get(i))
+				_builder.addSegmentToDatabase(state.segments, root, resolve(state, adjacentName));
+		}
+
+		return _builder.buildFigureNode(description, state.points, state.segments);
+	}
+
+	private void parsePoints(JSONPullReader reader, FigureState state) {
+		state.points = _builder.buildPointDatabaseNode(new ArrayList<>());
+		state.hasPoints = true;
+
+		reader.beginArray();
+		while (reader.hasNext()) {
+			String name = null;
+			boolean hasX = false;
+			boolean hasY = false;
+			double x = 0;
+			double y = 0;
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+				if (JSON_Constants.JSON_NAME.equals(key)) {
+					name = reader.nextString();
+				} else if (JSON_Constants.JSON_X.equals(key)) {
+					x = reader.nextDouble();
+					hasX = true;
+				} else if (JSON_Constants.JSON_Y.equals(key)) {
+					y = reader.nextDouble();
+					hasY = true;
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			if (name == null || !hasX || !hasY)
+				throw error("point is missing a name or coordinate before offset " + reader.position());
+
+			PointNode point = _builder.buildPointNode(name, x, y);
+			if (state.points != null && point != null)
+				_builder.addPointToDatabase(state.points, point);
+			else
+				state.unstoredNames.add(name);
+		}
+		reader.endArray();
+	}
+
+	/**
+	 * Parses the adjacency lists of a "Segments" array. If the points have not
+	 * been read yet, the lists are set aside to be resolved at the end of the
+	 * figure.
+	 */
+	private void parseSegments(JSONPullReader reader, FigureState state) {
+		state.segments = _builder.buildSegmentNodeDatabase();
+		state.hasSegments = true;
+
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String rootName = reader.nextName();
+				boolean resolved = state.hasPoints;
+				PointNode root = resolved ? resolve(state, rootName) : null;
+				List<String> adjacentNames = resolved ? null : new ArrayList<>();
+
+				reader.beginArray();
+				while (reader.hasNext()) {
+					String adjacentName = reader.nextString();
+					if (resolved)
+						_builder.addSegmentToDatabase(state.segments, root, resolve(state, adjacentName));
+					else
+						adjacentNames.add(adjacentName);
+				}
+				reader.endArray();
+
+				if (!resolved) {
+					state.pendingRoots.add(rootName);
+					state.pendingAdjacent.add(adjacentNames);
+				}
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+	}
+
+	/**
+	 * @return the stored point with the given name, or null if the point was
+	 *         defined but the builder did not store it.
+	 * @throws ParseException if no point with the name was defined
+	 */
+	private PointNode resolve(FigureState state, String name) {
+		PointNode point = state.points != null ? state.points.getPoint(name) : null;
+		if (point == null && !state.unstoredNames.contains(name))
+			throw error("segment refers to undefined point \"" + name + "\"");
+		return point;
+	}
+}
@@ -0,0 +1,393 @@
+package input.parser;
+
+import input.exception.ParseException;
+
+/**
+ * A pull-style reader over JSON text which never builds a document tree.
+ *
+ * The caller walks the structure it expects (beginObject, nextName,
+ * nextDouble, ...) and the reader checks the syntax as it goes. Object keys
+ * which match one of the JSON_Constants keys are returned as those constants,
+ * and plain decimal numbers are converted without building an intermediate
+ * string, so reading a figure allocates little beyond the strings it keeps.
+ */
+public class JSONPullReader {
+	private static final String[] KNOWN_NAMES = {
+			JSON_Constants.JSON_FIGURE,
+			JSON_Constants.JSON_FIGURE_S,
+			JSON_Constants.JSON_DESCRIPTION,
+			JSON_Constants.JSON_POINT_S,
+			JSON_Constants.JSON_NAME,
+			JSON_Constants.JSON_X,
+			JSON_Constants.JSON_Y,
+			JSON_Constants.JSON_SEGMENTS
+	};
+
+	// 10^0 .. 10^22 are exact doubles
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final CharSequence _json;
+	private final int _length;
+	private int _pos;
+
+	// true when a value has been read in the current container, so that the
+	// next one must be preceded by a comma
+	private boolean _needsComma;
+
+	private final StringBuilder _buffer;
+
+	public JSONPullReader(CharSequence json) {
+		this(json, 0, json.length());
+	}
+
+	/**
+	 * Constructs a reader over json[start, end), which must hold a single value.
+	 * Offsets reported by the reader remain offsets into json.
+	 */
+	public JSONPullReader(CharSequence json, int start, int end) {
+		_json = json;
+		_length = end;
+		_pos = start;
+		_needsComma = false;
+		_buffer = new StringBuilder();
+	}
+
+	/**
+	 * @return the offset of the next character to be read.
+	 */
+	public int position() {
+		return _pos;
+	}
+
+	public void beginObject() {
+		beginValue();
+		expect('{');
+		_needsComma = false;
+	}
+
+	public void endObject() {
+		skipWhitespace();
+		expect('}');
+		_needsComma = true;
+	}
+
+	public void beginArray() {
+		beginValue();
+		expect('[');
+		_needsComma = false;
+	}
+
+	public void endArray() {
+		skipWhitespace();
+		expect(']');
+		_needsComma = true;
+	}
+
+	/**
+	 * @return true if the current object or array has another element.
+	 */
+	public boolean hasNext() {
+		skipWhitespace();
+		if (_pos >= _length)
+			throw error("unexpected end of input");
+		char c = _json.charAt(_pos);
+		return c != '}' && c != ']';
+	}
+
+	/**
+	 * Reads the key of the next member of the current object.
+	 */
+	public String nextName() {
+		beginValue();
+		String name = readString(true);
+		skipWhitespace();
+		expect(':');
+		_needsComma = false;
+		return name;
+	}
+
+	public String nextString() {
+		beginValue();
+		String value = readString(false);
+		_needsComma = true;
+		return value;
+	}
+
+	public double nextDouble() {
+		beginValue();
+		double value = readNumber();
+		_needsComma = true;
+		return value;
+	}
+
+	/**
+	 * Skips the next value, including any nested objects and arrays.
+	 *
+	 * @return the offset at which the skipped value starts; together with
+	 *         position() afterwards, this bounds the value's text.
+	 */
+	public int skipValue() {
+		beginValue();
+		int start = _pos;
+		skipRawValue();
+		_needsComma = true;
+		return start;
+	}
+
+	/**
+	 * Checks that no input other than whitespace remains.
+	 */
+	public void endDocument() {
+		skipWhitespace();
+		if (_pos < _length)
+			throw error("unexpected '" + _json.charAt(_pos) + "' after end of document");
+	}
+
+	/**
+	 * Skips whitespace and, if a value was already read in the current
+	 * container, the comma separating it from the next one.
+	 */
+	private void beginValue() {
+		skipWhitespace();
+		if (_needsComma) {
+			expect(',');
+			skipWhitespace();
+			_needsComma = false;
+		}
+	}
+
+	private void skipRawValue() {
+		if (_pos >= _length)
+			throw error("unexpected end of input");
+
+		char c = _json.charAt(_pos);
+		if (c == '{' || c == '[') {
+			char close = c == '{' ? '}' : ']';
+			_pos++;
+			skipWhitespace();
+			if (_pos < _length && _json.charAt(_pos) == close) {
+				_pos++;
+				return;
+			}
+			while (true) {
+				skipWhitespace();
+				if (c == '{') {
+					skipString();
+					skipWhitespace();
+					expect(':');
+					skipWhitespace();
+				}
+				skipRawValue();
+				skipWhitespace();
+				if (_pos < _length && _json.charAt(_pos) == close) {
+					_pos++;
+					return;
+				}
+				expect(',');
+			}
+		} else if (c == '"') {
+			skipString();
+		} else if (c == '-' || (c >= '0' && c <= '9')) {
+			readNumber();
+		} else if (!skipLiteral("true") && !skipLiteral("false") && !skipLiteral("null")) {
+			throw error("unexpected '" + c + "'");
+		}
+	}
+
+	private boolean skipLiteral(String literal) {
+		int end = _pos + literal.length();
+		if (end > _length)
+			return false;
+		for (int i = 0; i < literal.length(); i++) {
+			if (_json.charAt(_pos + i) != literal.charAt(i))
+				return false;
+		}
+		_pos = end;
+		return true;
+	}
+
+	private void skipString() {
+		expect('"');
+		while (_pos < _length) {
+			char c = _json.charAt(_pos++);
+			if (c == '"')
+				return;
+			if (c == '\\')
+				_pos++;
+		}
+		throw error("unterminated string");
+	}
+
+	/**
+	 * Reads a string literal, returning the matching JSON_Constants key instead
+	 * of a new string when name is true.
+	 */
+	private String readString(boolean name) {
+		expect('"');
+		int start = _pos;
+		while (_pos < _length) {
+			char c = _json.charAt(_pos);
+			if (c == '"') {
+				String value = name ? knownName(start, _pos) : null;
+				if (value == null)
+					value = _json.subSequence(start, _pos).toString();
+				_pos++;
+				return value;
+			}
+			if (c == '\\')
+				return readEscapedString(start);
+			_pos++;
+		}
+		throw error("unterminated string");
+	}
+
+	private String knownName(int start, int end) {
+		for (String known : KNOWN_NAMES) {
+			if (known.length() != end - start)
+				continue;
+			int i = 0;
+			while (i < known.length() && known.charAt(i) == _json.charAt(start + i))
+				i++;
+			if (i == known.length())
+				return known;
+		}
+		return null;
+	}
+
+	/**
+	 * Finishes reading a string containing escape sequences, positioned at the
+	 * first backslash.
+	 */
+	private String readEscapedString(int start) {
+		_buffer.setLength(0);
+		_buffer.append(_json, start, _pos);
+		while (_pos < _length) {
+			char c = _json.charAt(_pos++);
+			if (c == '"')
+				return _buffer.toString();
+			if (c != '\\') {
+				_buffer.append(c);
+				continue;
+			}
+			if (_pos >= _length)
+				break;
+			char escaped = _json.charAt(_pos++);
+			switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					_buffer.append(escaped);
+					break;
+				case 'b':
+					_buffer.append('\b');
+					break;
+				case 'f':
+					_buffer.append('\f');
+					break;
+				case 'n':
+					_buffer.append('\n');
+					break;
+				case 'r':
+					_buffer.append('\r');
+					break;
+				case 't':
+					_buffer.append('\t');
+					break;
+				case 'u':
+					if (_pos + 4 > _length)
+						throw error("truncated unicode escape");
+					try {
+						_buffer.append((char) Integer.parseInt(_json.subSequence(_pos, _pos + 4).toString(), 16));
+					} catch (NumberFormatException e) {
+						throw error("invalid unicode escape");
+					}
+					_pos += 4;
+					break;
+				default:
+					throw error("invalid escape '\\" + escaped + "'");
+			}
+		}
+		throw error("unterminated string");
+	}
+
+	/**
+	 * Reads a number. Decimals with at most 15 significant digits and no
+	 * exponent are converted directly; the quotient of two exact doubles is
+	 * correctly rounded, so the result is the same as Double.parseDouble.
+	 */
+	private double readNumber() {
+		int start = _pos;
+		boolean negative = false;
+		if (_pos < _length && _json.charAt(_pos) == '-') {
+			negative = true;
+			_pos++;
+		}
+
+		long mantissa = 0;
+		boolean anyDigits = false;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		boolean simple = true;
+		while (_pos < _length) {
+			char c = _json.charAt(_pos);
+			if (c >= '0' && c <= '9') {
+				anyDigits = true;
+				if (digits < 18)
+					mantissa = mantissa * 10 + (c - '0');
+				if (mantissa != 0)
+					digits++;
+				if (fraction)
+					fractionDigits++;
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else if (c == 'e' || c == 'E' || c == '+' || c == '-' || c == '.') {
+				simple = false;
+			} else {
+				break;
+			}
+			_pos++;
+		}
+
+		if (!anyDigits)
+			throw error("expected a value");
+
+		if (simple && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+
+		try {
+			return Double.parseDouble(_json.subSequence(start, _pos).toString());
+		} catch (NumberFormatException e) {
+			throw error("invalid number '" + _json.subSequence(start, _pos) + "'");
+		}
+	}
+
+	private void expect(char expected) {
+		if (_pos >= _length)
+			throw error("expected '" + expected + "' but reached end of input");
+		char c = _json.charAt(_pos);
+		if (c != expected)
+			throw error("expected '" + expected + "' but found '" + c + "'");
+		_pos++;
+	}
+
+	private void skipWhitespace() {
+		while (_pos < _length) {
+			char c = _json.charAt(_pos);
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+				return;
+			_pos++;
+		}
+	}
+
+	private ParseException error(String message) {
+		return new ParseException("Parse error: " + message + " at offset " + _pos);
+	}
+}
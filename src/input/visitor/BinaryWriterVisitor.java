@@ -0,0 +1,228 @@
+package input.visitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import input.components.*;
+import input.components.point.*;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+import input.parser.BinaryFigureFormat;
+
+//
+// This file implements a Visitor (design pattern) which writes geometry
+// figures in the binary format of BinaryFigureFormat, for BinaryFigureParser
+// to load again.
+//
+// Bytes go into a buffer which is passed to the OutputStream as it fills.
+// Visiting a point database numbers its points, and visiting a segment
+// database afterwards refers to its points by those numbers, so a segment
+// database is written as part of its figure. The visits take no
+// context.
+//
+public class BinaryWriterVisitor implements ComponentNodeVisitor<Void, Void> {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final OutputStream _out;
+	private final byte[] _buffer;
+	private int _count;
+
+	// the last point database written; points are numbered by insertion index
+	private PointNodeDatabase _points;
+
+	/**
+	 * @param out destination of the bytes; call flush once done
+	 */
+	public BinaryWriterVisitor(OutputStream out) {
+		_out = out;
+		_buffer = new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Writes a whole file holding the figure, and flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void write(FigureNode figure) {
+		write(List.of(figure));
+	}
+
+	/**
+	 * Writes a whole file holding the figures, in order, and flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void write(List<FigureNode> figures) {
+		for (byte b : BinaryFigureFormat.MAGIC)
+			write(b);
+		writeShort(BinaryFigureFormat.VERSION);
+		writeShort(0);
+		writeInt(figures.size());
+		for (FigureNode figure : figures)
+			figure.accept(this, null);
+		flush();
+	}
+
+	/**
+	 * Passes everything buffered to the stream and flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void flush() {
+		try {
+			drain();
+			_out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Void visitFigureNode(FigureNode node, Void context) {
+		writeString(node.getDescription());
+		node.getPointsDatabase().accept(this, context);
+		node.getSegments().accept(this, context);
+
+		return null;
+	}
+
+	/**
+	 * Writes the segments as rows of point indexes, in the order of
+	 * SegmentWriteOrder.
+	 *
+	 * @throws IllegalStateException    if no point database has been written
+	 * @throws IllegalArgumentException if a segment ends at a point which is
+	 *                                  not in the point database
+	 */
+	@Override
+	public Void visitSegmentDatabaseNode(SegmentNodeDatabase node, Void context) {
+		if (_points == null)
+			throw new IllegalStateException("segments are written after the points they refer to");
+		SegmentWriteOrder order = new SegmentWriteOrder(node);
+		int[] indexes = new int[order.numPoints()];
+		for (int k = 0; k < indexes.length; k++)
+			indexes[k] = indexOf(order.point(k));
+
+		int rows = 0;
+		for (int i = 0; i < order.size(); i++)
+			if (i == 0 || order.rootNumber(i) != order.rootNumber(i - 1))
+				rows++;
+		writeVarint(rows);
+
+		for (int start = 0, end; start < order.size(); start = end) {
+			end = start + 1;
+			while (end < order.size() && order.rootNumber(end) == order.rootNumber(start))
+				end++;
+			writeVarint(indexes[order.rootNumber(start)]);
+			writeVarint(end - start);
+			for (int i = start; i < end; i++)
+				writeVarint(indexes[order.neighborNumber(i)]);
+		}
+
+		return null;
+	}
+
+	/**
+	 * This method should NOT be called since the segment database
+	 * uses the Adjacency list representation
+	 */
+	@Override
+	public Void visitSegmentNode(SegmentNode node, Void context) {
+		return null;
+	}
+
+	@Override
+	public Void visitPointNodeDatabase(PointNodeDatabase node, Void context) {
+		_points = node;
+
+		writeVarint(node.size());
+		node.forEachPoint(point -> writeDouble(point.getX()));
+		node.forEachPoint(point -> writeDouble(point.getY()));
+		node.forEachPoint(point -> writeString(point.getName()));
+
+		return null;
+	}
+
+	/**
+	 * Points are written by their database, as columns; see
+	 * visitPointNodeDatabase.
+	 */
+	@Override
+	public Void visitPointNode(PointNode node, Void context) {
+		return null;
+	}
+
+	/**
+	 * @return the insertion index of the stored point at the point's
+	 *         coordinates, in the point database written last.
+	 */
+	private int indexOf(PointNode point) {
+		int index = _points.indexOf(point);
+		if (index == -1)
+			throw new IllegalArgumentException("segment endpoint " + point + " is not in the figure's points");
+		return index;
+	}
+
+	private void writeString(String text) {
+		if (text == null) {
+			writeVarint(0);
+			return;
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length + 1);
+		for (byte b : bytes)
+			write(b);
+	}
+
+	private void writeVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write(value);
+	}
+
+	private void writeDouble(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		ensure(8);
+		for (int i = 0; i < 8; i++)
+			_buffer[_count++] = (byte) (bits >>> (8 * i));
+	}
+
+	private void writeInt(int value) {
+		ensure(4);
+		for (int i = 0; i < 4; i++)
+			_buffer[_count++] = (byte) (value >>> (8 * i));
+	}
+
+	private void writeShort(int value) {
+		write(value);
+		write(value >>> 8);
+	}
+
+	private void write(int b) {
+		ensure(1);
+		_buffer[_count++] = (byte) b;
+	}
+
+	/**
+	 * Makes room for at least n more bytes in the buffer.
+	 */
+	private void ensure(int n) {
+		if (_count + n > _buffer.length) {
+			try {
+				drain();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void drain() throws IOException {
+		_out.write(_buffer, 0, _count);
+		_count = 0;
+	}
+}
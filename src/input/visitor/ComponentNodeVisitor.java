@@ -16,14 +16,20 @@ import input.components.segment.SegmentNodeDatabase;
 //
 // For each ComponentNode, we need a visit method as established in this interface.
 //
-public interface ComponentNodeVisitor {
-	Object visitFigureNode(FigureNode node, Object o);
+// R is the type of the result of a visit and C the type of the context passed
+// down from node to node. A visitor which needs state while it descends, such
+// as an indentation level, passes one mutable context object all the way down
+// rather than a new one per node; ComponentNode.accept dispatches to the
+// visit method of the node's class.
+//
+public interface ComponentNodeVisitor<R, C> {
+	R visitFigureNode(FigureNode node, C context);
 
-	Object visitSegmentDatabaseNode(SegmentNodeDatabase node, Object o);
+	R visitSegmentDatabaseNode(SegmentNodeDatabase node, C context);
 
-	Object visitSegmentNode(SegmentNode node, Object o);
+	R visitSegmentNode(SegmentNode node, C context);
 
-	Object visitPointNode(PointNode node, Object o);
+	R visitPointNode(PointNode node, C context);
 
-	Object visitPointNodeDatabase(PointNodeDatabase node, Object o);
+	R visitPointNodeDatabase(PointNodeDatabase node, C context);
 }
\ No newline at end of file
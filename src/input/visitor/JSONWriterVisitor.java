@@ -0,0 +1,393 @@
+package input.visitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import input.components.*;
+import input.components.point.*;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+import input.parser.JSON_Constants;
+
+//
+// This file implements a Visitor (design pattern) which writes a geometry
+// figure back out as JSON, in the schema of JSON_Constants, for JSONParser to
+// read again.
+//
+// Text is encoded as UTF-8 straight into a byte buffer which is passed to the
+// OutputStream as it fills; no JSONObjects or Strings of the output are made.
+// Whole-number coordinates are written digit by digit, and others with
+// Double.toString, which reads back as exactly the same double. Each segment
+// is written once, as the figure files do, in an order (see SegmentWriteOrder)
+// which JSONParser builds back into the same adjacency lists. Output is
+// compact, without whitespace. The visits take no context.
+//
+// The schema has no directed edges: JSONParser adds each segment both ways.
+// An edge present in only one direction (as the map constructor of
+// SegmentNodeDatabase can make) is written like any other, and so reads back
+// undirected. A null description is written as "", as JSONParser requires a
+// string there.
+//
+// Segments refer to points by name, so a segment database is written as part
+// of its figure, after the points. A point JSONParser could not find by its
+// name (an unnamed point, or one whose name an earlier point has) is written
+// under a new name which no point has, such as "__P3", and its segments refer
+// to that.
+//
+public class JSONWriterVisitor implements ComponentNodeVisitor<Void, Void> {
+	private static final int BUFFER_SIZE = 8192;
+
+	// doubles of at most this magnitude which are whole numbers are written
+	// as longs; all such doubles are exact
+	private static final double MAX_WHOLE = 1L << 53;
+
+	private final OutputStream _out;
+	private final byte[] _buffer;
+	private int _count;
+
+	// the last point database written, and the name each of its points was
+	// written under, by insertion index
+	private PointNodeDatabase _points;
+	private String[] _names;
+
+	/**
+	 * @param out destination of the JSON text; call flush once done
+	 */
+	public JSONWriterVisitor(OutputStream out) {
+		_out = out;
+		_buffer = new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Writes a whole document holding the figure, as {"Figure": ...}, and
+	 * flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void write(FigureNode figure) {
+		write('{');
+		writeString(JSON_Constants.JSON_FIGURE);
+		write(':');
+		figure.accept(this, null);
+		write('}');
+		flush();
+	}
+
+	/**
+	 * Writes a whole document holding the figures, as {"Figures": [...]}, and
+	 * flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void write(List<FigureNode> figures) {
+		write('{');
+		writeString(JSON_Constants.JSON_FIGURE_S);
+		write(':');
+		write('[');
+		for (int i = 0; i < figures.size(); i++) {
+			if (i > 0)
+				write(',');
+			figures.get(i).accept(this, null);
+		}
+		write(']');
+		write('}');
+		flush();
+	}
+
+	/**
+	 * Passes everything buffered to the stream and flushes it.
+	 *
+	 * @throws UncheckedIOException if the stream cannot be written
+	 */
+	public void flush() {
+		try {
+			drain();
+			_out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Void visitFigureNode(FigureNode node, Void context) {
+		write('{');
+		writeString(JSON_Constants.JSON_DESCRIPTION);
+		write(':');
+		writeString(node.getDescription() != null ? node.getDescription() : "");
+		write(',');
+		writeString(JSON_Constants.JSON_POINT_S);
+		write(':');
+		node.getPointsDatabase().accept(this, context);
+		write(',');
+		writeString(JSON_Constants.JSON_SEGMENTS);
+		write(':');
+		node.getSegments().accept(this, context);
+		write('}');
+
+		return null;
+	}
+
+	/**
+	 * Writes the segments as lists of point names, in the order of
+	 * SegmentWriteOrder.
+	 *
+	 * @throws IllegalStateException    if no point database has been written
+	 * @throws IllegalArgumentException if a segment ends at a point which is
+	 *                                  not in the point database
+	 */
+	@Override
+	public Void visitSegmentDatabaseNode(SegmentNodeDatabase node, Void context) {
+		if (_points == null)
+			throw new IllegalStateException("segments are written after the points they refer to");
+		SegmentWriteOrder order = new SegmentWriteOrder(node);
+		String[] names = new String[order.numPoints()];
+		for (int k = 0; k < names.length; k++)
+			names[k] = nameOf(order.point(k));
+
+		write('[');
+		for (int i = 0; i < order.size(); i++) {
+			int root = order.rootNumber(i);
+			if (i == 0 || root != order.rootNumber(i - 1)) {
+				if (i > 0) {
+					write(']');
+					write('}');
+					write(',');
+				}
+				write('{');
+				writeString(names[root]);
+				write(':');
+				write('[');
+			} else
+				write(',');
+			writeString(names[order.neighborNumber(i)]);
+		}
+		if (order.size() > 0) {
+			write(']');
+			write('}');
+		}
+		write(']');
+
+		return null;
+	}
+
+	/**
+	 * This method should NOT be called since the segment database
+	 * uses the Adjacency list representation
+	 */
+	@Override
+	public Void visitSegmentNode(SegmentNode node, Void context) {
+		return null;
+	}
+
+	@Override
+	public Void visitPointNodeDatabase(PointNodeDatabase node, Void context) {
+		_points = node;
+		_names = writtenNames(node);
+
+		write('[');
+		int[] index = { 0 };
+		node.forEachPoint(point -> {
+			if (index[0] > 0)
+				write(',');
+			writePoint(point, _names[index[0]++]);
+		});
+		write(']');
+
+		return null;
+	}
+
+	@Override
+	public Void visitPointNode(PointNode node, Void context) {
+		writePoint(node, node.getName());
+
+		return null;
+	}
+
+	/**
+	 * @return the names to write the points under, by insertion index: a
+	 *         point's own name if the database finds the point by it, else a
+	 *         new name which no point has.
+	 */
+	private static String[] writtenNames(PointNodeDatabase node) {
+		String[] names = new String[node.size()];
+		Set<String> created = new HashSet<String>();
+		int[] index = { 0 };
+		node.forEachPoint(point -> {
+			String name = point.getName();
+			if (!point.equals(node.getPoint(name))) {
+				name = "__P" + index[0];
+				for (int k = 2; node.getPoint(name) != null || created.contains(name); k++)
+					name = "__P" + index[0] + "_" + k;
+				created.add(name);
+			}
+			names[index[0]++] = name;
+		});
+		return names;
+	}
+
+	/**
+	 * @return the name the stored point at the point's coordinates was
+	 *         written under, in the point database written last.
+	 */
+	private String nameOf(PointNode point) {
+		int index = _points.indexOf(point);
+		if (index == -1)
+			throw new IllegalArgumentException("segment endpoint " + point + " is not in the figure's points");
+		return _names[index];
+	}
+
+	private void writePoint(PointNode node, String name) {
+		write('{');
+		writeString(JSON_Constants.JSON_NAME);
+		write(':');
+		writeString(name);
+		write(',');
+		writeString(JSON_Constants.JSON_X);
+		write(':');
+		writeDouble(node.getX());
+		write(',');
+		writeString(JSON_Constants.JSON_Y);
+		write(':');
+		writeDouble(node.getY());
+		write('}');
+	}
+
+	/**
+	 * Writes a number which JSONParser reads back as the same double.
+	 *
+	 * @throws IllegalArgumentException if the value is NaN or infinite, which
+	 *                                  JSON cannot represent
+	 */
+	private void writeDouble(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			throw new IllegalArgumentException("JSON cannot represent " + value);
+
+		// -0.0 is left to Double.toString to keep its sign
+		if (value == Math.rint(value) && Math.abs(value) <= MAX_WHOLE
+				&& (value != 0 || Double.doubleToRawLongBits(value) == 0))
+			writeLong((long) value);
+		else
+			writeAscii(Double.toString(value));
+	}
+
+	private void writeLong(long value) {
+		if (value < 0) {
+			write('-');
+			value = -value;
+		}
+		ensure(20);
+		int end = _count + digits(value);
+		for (int i = end - 1; i >= _count; i--) {
+			_buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		_count = end;
+	}
+
+	private static int digits(long value) {
+		int digits = 1;
+		while (value >= 10) {
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	private void writeAscii(String text) {
+		for (int i = 0; i < text.length(); i++)
+			write(text.charAt(i));
+	}
+
+	/**
+	 * Writes a string literal, escaping quotes, backslashes and control
+	 * characters, and encoding everything else as UTF-8. A null string is
+	 * written as null.
+	 */
+	private void writeString(String text) {
+		if (text == null) {
+			writeAscii("null");
+			return;
+		}
+
+		write('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				write('\\');
+				write(c);
+			} else if (c < 0x20) {
+				writeControl(c);
+			} else if (c < 0x80) {
+				write(c);
+			} else if (c < 0x800) {
+				write(0xC0 | (c >> 6));
+				write(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				write(0xF0 | (codePoint >> 18));
+				write(0x80 | ((codePoint >> 12) & 0x3F));
+				write(0x80 | ((codePoint >> 6) & 0x3F));
+				write(0x80 | (codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				// an unpaired surrogate has no UTF-8 form of its own
+				writeAscii(String.format("\\u%04x", (int) c));
+			} else {
+				write(0xE0 | (c >> 12));
+				write(0x80 | ((c >> 6) & 0x3F));
+				write(0x80 | (c & 0x3F));
+			}
+		}
+		write('"');
+	}
+
+	private void writeControl(char c) {
+		write('\\');
+		switch (c) {
+		case '\b':
+			write('b');
+			break;
+		case '\f':
+			write('f');
+			break;
+		case '\n':
+			write('n');
+			break;
+		case '\r':
+			write('r');
+			break;
+		case '\t':
+			write('t');
+			break;
+		default:
+			writeAscii(String.format("u%04x", (int) c));
+		}
+	}
+
+	private void write(int b) {
+		ensure(1);
+		_buffer[_count++] = (byte) b;
+	}
+
+	/**
+	 * Makes room for at least n more bytes in the buffer.
+	 */
+	private void ensure(int n) {
+		if (_count + n > _buffer.length) {
+			try {
+				drain();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void drain() throws IOException {
+		_out.write(_buffer, 0, _count);
+		_count = 0;
+	}
+}
@@ -0,0 +1,95 @@
+package input.visitor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import input.components.*;
+import input.components.point.*;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+
+//
+// A Visitor (design pattern) which visits the points of a point database, and
+// the segments of a segment database, in parallel on a fork-join pool.
+//
+// Subclasses say what to do with one point and one segment. The databases
+// split their children into fork-join tasks (see PointNodeDatabase.pointStream
+// and SegmentNodeDatabase.uniqueSegmentStream), and the results of the visits
+// are combined with the reducer, always in the order of the children: the
+// reducer must be associative, but need not be commutative, so that for
+// instance concatenating lists gives the same list as a sequential visit.
+// Each partial result belongs to one task, so the reducer may add the later
+// result into the earlier one and return it. Null results are left out of the
+// reduction, and a database with no children gives null. Databases with
+// fewer than PARALLEL_THRESHOLD points, or undirected segments, are visited on
+// the calling thread.
+//
+// Points and segments are visited from several threads at once, with the same
+// context; visitPointNode and visitSegmentNode must be safe to call so, and
+// the databases must not change during a visit.
+//
+public abstract class ParallelComponentNodeVisitor<R, C> implements ComponentNodeVisitor<R, C> {
+	public static final int PARALLEL_THRESHOLD = 1024;
+
+	private final ForkJoinPool _pool;
+	private final BinaryOperator<R> _reducer;
+
+	/**
+	 * @param pool    pool to visit on
+	 * @param reducer associative function combining the results of two runs
+	 *                of children, the earlier one first
+	 */
+	protected ParallelComponentNodeVisitor(ForkJoinPool pool, BinaryOperator<R> reducer) {
+		_pool = pool;
+		_reducer = reducer;
+	}
+
+	/**
+	 * @return the reduction of the results of visiting the figure's points and
+	 *         then its segments.
+	 */
+	@Override
+	public R visitFigureNode(FigureNode node, C context) {
+		return combine(node.getPointsDatabase().accept(this, context), node.getSegments().accept(this, context));
+	}
+
+	/**
+	 * @return the reduction of the results of visitSegmentNode over each
+	 *         segment, taken once in the order of asUniqueSegmentList.
+	 */
+	@Override
+	public R visitSegmentDatabaseNode(SegmentNodeDatabase node, C context) {
+		if (node.numUndirectedEdges() < PARALLEL_THRESHOLD)
+			return reduce(node.uniqueSegmentStream(), segment -> visitSegmentNode(segment, context));
+		return _pool.submit(() -> reduce(node.uniqueSegmentStream().parallel(),
+				segment -> visitSegmentNode(segment, context))).join();
+	}
+
+	/**
+	 * @return the reduction of the results of visitPointNode over each point,
+	 *         in insertion order.
+	 */
+	@Override
+	public R visitPointNodeDatabase(PointNodeDatabase node, C context) {
+		if (node.size() < PARALLEL_THRESHOLD)
+			return reduce(node.pointStream(), point -> point.accept(this, context));
+		return _pool.submit(() -> reduce(node.pointStream().parallel(), point -> point.accept(this, context))).join();
+	}
+
+	private <T> R reduce(Stream<T> children, Function<T, R> visit) {
+		return children.map(visit).reduce(null, this::combine);
+	}
+
+	/**
+	 * Applies the reducer, treating null as a result to leave out.
+	 */
+	private R combine(R earlier, R later) {
+		if (earlier == null)
+			return later;
+		if (later == null)
+			return earlier;
+		return _reducer.apply(earlier, later);
+	}
+}
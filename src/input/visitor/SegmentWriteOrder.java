@@ -0,0 +1,246 @@
+package input.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import input.components.point.PointNode;
+import input.components.segment.SegmentNodeDatabase;
+
+/**
+ * An order in which to write the segments of a SegmentNodeDatabase so that
+ * reading them back, one addUndirectedEdge at a time, rebuilds the same
+ * adjacency lists in the same order, each with its neighbors in the same
+ * order.
+ * <p>
+ * Each segment must come after the one before it in either endpoint's list,
+ * and the first segment of each list after the first segment of the list
+ * before it; a segment which is the first of two lists is written under the
+ * earlier one. These constraints are sorted topologically, with a stack so
+ * that a point's segments tend to stay together and be written as one list.
+ * A database built by adding undirected edges always has such an order, its
+ * own history; for any other, the segments left over are written at the end.
+ */
+class SegmentWriteOrder {
+	private static final int NONE = -1;
+
+	private final List<PointNode> _points;
+
+	// each segment to write, as the point it is listed under and its
+	// neighbor, in order
+	private final int[] _roots;
+	private final int[] _neighbors;
+
+	SegmentWriteOrder(SegmentNodeDatabase database) {
+		_points = new ArrayList<PointNode>();
+		Map<PointNode, Integer> indexes = new IdentityHashMap<PointNode, Integer>();
+		List<PointNode[]> neighborLists = new ArrayList<PointNode[]>();
+		database.forEachAdjacencyList((point, neighbors) -> {
+			indexes.put(point, _points.size());
+			_points.add(point);
+			neighborLists.add(neighbors.toArray(new PointNode[neighbors.size()]));
+		});
+
+		// the lists in compressed sparse row form: the neighbors of list u are
+		// _entries[offsets[u] .. offsets[u + 1])
+		int lists = neighborLists.size();
+		int[] offsets = new int[lists + 1];
+		for (int u = 0; u < lists; u++)
+			offsets[u + 1] = offsets[u] + neighborLists.get(u).length;
+		int[] entries = new int[offsets[lists]];
+		for (int u = 0; u < lists; u++) {
+			PointNode[] neighbors = neighborLists.get(u);
+			for (int k = 0; k < neighbors.length; k++) {
+				Integer index = indexes.get(neighbors[k]);
+				if (index == null) {
+					index = _points.size();
+					indexes.put(neighbors[k], index);
+					_points.add(neighbors[k]);
+				}
+				entries[offsets[u] + k] = index;
+			}
+		}
+
+		// number the segments: each is met first in the list of its earlier
+		// endpoint, which tells the later one through a mark
+		int[] segmentOf = new int[entries.length];
+		int[] laterOffsets = new int[lists + 1];
+		for (int u = 0; u < lists; u++)
+			for (int e = offsets[u]; e < offsets[u + 1]; e++)
+				if (entries[e] > u && entries[e] < lists)
+					laterOffsets[entries[e] + 1]++;
+		for (int u = 0; u < lists; u++)
+			laterOffsets[u + 1] += laterOffsets[u];
+		// the earlier endpoint and entry of each segment, by its later endpoint
+		int[] earlier = new int[laterOffsets[lists]];
+		int[] earlierEntry = new int[laterOffsets[lists]];
+		int[] filled = Arrays.copyOf(laterOffsets, lists);
+
+		// each segment's entries in its endpoints' lists; _entries of the
+		// second is NONE for a segment listed only under one endpoint
+		int[] first = new int[entries.length];
+		int[] second = new int[entries.length];
+		int n = 0;
+		int[] mark = new int[lists];
+		Arrays.fill(mark, NONE);
+		for (int u = 0; u < lists; u++) {
+			for (int i = laterOffsets[u]; i < laterOffsets[u + 1]; i++)
+				mark[earlier[i]] = earlierEntry[i];
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int v = entries[e];
+				if (v < u && mark[v] != NONE) {
+					segmentOf[e] = segmentOf[mark[v]];
+					second[segmentOf[e]] = e;
+					continue;
+				}
+				segmentOf[e] = n;
+				first[n] = e;
+				second[n] = NONE;
+				n++;
+				if (v > u && v < lists) {
+					earlier[filled[v]] = u;
+					earlierEntry[filled[v]++] = e;
+				}
+			}
+			for (int i = laterOffsets[u]; i < laterOffsets[u + 1]; i++)
+				mark[earlier[i]] = NONE;
+		}
+
+		// the list each entry is in, and the first entry of the next nonempty
+		// list after each list
+		int[] owner = new int[entries.length];
+		int[] nextFirst = new int[lists];
+		int following = NONE;
+		for (int u = lists - 1; u >= 0; u--) {
+			for (int e = offsets[u]; e < offsets[u + 1]; e++)
+				owner[e] = u;
+			nextFirst[u] = following;
+			if (offsets[u + 1] > offsets[u])
+				following = offsets[u];
+		}
+
+		int[] successors = new int[4];
+		int[] waiting = new int[n];
+		for (int id = 0; id < n; id++) {
+			successors(first[id], second[id], offsets, owner, nextFirst, segmentOf, successors);
+			for (int successor : successors)
+				if (successor != NONE && successor != id)
+					waiting[successor]++;
+		}
+
+		_roots = new int[n];
+		_neighbors = new int[n];
+		boolean[] written = new boolean[n];
+		boolean[] created = new boolean[_points.size()];
+		int count = 0;
+		int root = NONE;
+		int unwritten = 0;
+		int[] stack = new int[n];
+		int top = 0;
+		for (int id = n - 1; id >= 0; id--)
+			if (waiting[id] == 0)
+				stack[top++] = id;
+		while (count < n) {
+			int id;
+			if (top > 0)
+				id = stack[--top];
+			else {
+				// no order exists: write what is left as it comes
+				while (written[unwritten])
+					unwritten++;
+				id = unwritten;
+			}
+			if (written[id])
+				continue;
+			written[id] = true;
+
+			int u = owner[first[id]];
+			int v = entries[first[id]];
+			// u's list comes first; put v first only where that changes no
+			// list's creation, to continue the current list
+			if (v == root && created[u])
+				root = v;
+			else
+				root = u;
+			_roots[count] = root;
+			_neighbors[count] = root == u ? v : u;
+			count++;
+			created[u] = true;
+			created[v] = true;
+
+			successors(first[id], second[id], offsets, owner, nextFirst, segmentOf, successors);
+			// the successor in the root's list is pushed last, to come next
+			if (root != u) {
+				int swap = successors[0];
+				successors[0] = successors[1];
+				successors[1] = swap;
+			}
+			for (int i = successors.length - 1; i >= 0; i--) {
+				int successor = successors[i];
+				if (successor != NONE && successor != id && --waiting[successor] == 0)
+					stack[top++] = successor;
+			}
+		}
+	}
+
+	/**
+	 * Finds the segments which must wait for the one with the given entries:
+	 * the next in each endpoint's list, and the first of the list after each
+	 * endpoint's, if it is the first of that endpoint's list; NONE where there
+	 * is no such segment.
+	 */
+	private static void successors(int first, int second, int[] offsets, int[] owner, int[] nextFirst,
+			int[] segmentOf, int[] successors) {
+		Arrays.fill(successors, NONE);
+		int[] entries = { first, second };
+		for (int i = 0; i < 2; i++) {
+			int e = entries[i];
+			if (e == NONE)
+				continue;
+			int u = owner[e];
+			if (e + 1 < offsets[u + 1])
+				successors[i] = segmentOf[e + 1];
+			if (e == offsets[u] && nextFirst[u] != NONE)
+				successors[2 + i] = segmentOf[nextFirst[u]];
+		}
+	}
+
+	/**
+	 * @return the number of segments.
+	 */
+	int size() {
+		return _roots.length;
+	}
+
+	/**
+	 * @return the number of points with adjacency lists or neighbors; they are
+	 *         numbered in the order of their lists, then of their first
+	 *         appearance as a neighbor.
+	 */
+	int numPoints() {
+		return _points.size();
+	}
+
+	/**
+	 * @return the point with the given number.
+	 */
+	PointNode point(int k) {
+		return _points.get(k);
+	}
+
+	/**
+	 * @return the number of the point the i-th segment is listed under.
+	 */
+	int rootNumber(int i) {
+		return _roots[i];
+	}
+
+	/**
+	 * @return the number of the other end of the i-th segment.
+	 */
+	int neighborNumber(int i) {
+		return _neighbors[i];
+	}
+}
@@ -1,36 +1,123 @@
 package input.visitor;
 
-import java.util.AbstractMap;
-import java.util.Map;
-import java.util.Set;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import input.components.*;
 import input.components.point.*;
 import input.components.segment.SegmentNode;
 import input.components.segment.SegmentNodeDatabase;
+import utilities.io.StringUtilities;
 
 //
-// This file implements a Visitor (design pattern) with 
+// This file implements a Visitor (design pattern) with
 // the intent of building an unparsed, String representation
 // of a geometry figure.
 //
-public class UnparseVisitor implements ComponentNodeVisitor {
+// Output is streamed straight to an Appendable (a StringBuilder, a Writer, or
+// an OutputStream by way of a buffered UTF-8 writer) piece by piece, with the
+// indentation strings taken from StringUtilities' cache, so no line is ever
+// built as a String of its own and memory use does not grow with the figure.
+// The context passed to each visit method is the indentation level.
+//
+public class UnparseVisitor implements ComponentNodeVisitor<Void, UnparseVisitor.Level> {
+	/**
+	 * The indentation level, raised and lowered in place as the visitor
+	 * descends, so that one object serves a whole unparse.
+	 */
+	public static class Level {
+		private int _level;
+
+		public Level(int level) {
+			_level = level;
+		}
+
+		public int get() {
+			return _level;
+		}
+	}
+
+	private final Appendable _out;
+
+	// the same destination, when it is a StringBuilder, to append numbers to
+	// without first making Strings of them
+	private final StringBuilder _builder;
+
+	/**
+	 * @param out destination of the unparsed text
+	 */
+	public UnparseVisitor(Appendable out) {
+		_out = out;
+		_builder = out instanceof StringBuilder ? (StringBuilder) out : null;
+	}
+
+	/**
+	 * Writes the unparsed text to the stream as UTF-8, through a buffer; call
+	 * flush once done.
+	 *
+	 * @param out destination of the unparsed text
+	 */
+	public UnparseVisitor(OutputStream out) {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Flushes the destination, if it is a Writer.
+	 *
+	 * @throws UncheckedIOException if the destination cannot be written
+	 */
+	public void flush() {
+		if (_out instanceof Writer) {
+			try {
+				((Writer) _out).flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Unparses the node, and everything under it, at the given level.
+	 */
+	public void unparse(ComponentNode node, int level) {
+		node.accept(this, new Level(level));
+	}
+
 	@Override
-	public Object visitFigureNode(FigureNode node, Object o) {
-		// Unpack the input object containing a Stringbuilder and an indentation level
-		@SuppressWarnings("unchecked")
-		AbstractMap.SimpleEntry<StringBuilder, Integer> pair = (AbstractMap.SimpleEntry<StringBuilder, Integer>) (o);
-		StringBuilder sb = pair.getKey();
-		int level = pair.getValue();
+	public Void visitFigureNode(FigureNode node, Level level) {
+		int outer = level._level;
 
-		// TODO
+		indent(outer).append("Figure\n");
+		indent(outer).append("{\n");
+		indent(outer + 1).append("Description: \"").append(node.getDescription()).append("\"\n");
+		indent(outer + 1).append("Points:\n");
+		level._level = outer + 1;
+		node.getPointsDatabase().accept(this, level);
+		indent(outer + 1).append("Segments:\n");
+		node.getSegments().accept(this, level);
+		level._level = outer;
+		indent(outer).append("}\n");
 
 		return null;
 	}
 
 	@Override
-	public Object visitSegmentDatabaseNode(SegmentNodeDatabase node, Object o) {
-		// TODO
+	public Void visitSegmentDatabaseNode(SegmentNodeDatabase node, Level level) {
+		int outer = level._level;
+
+		indent(outer).append("{\n");
+		node.forEachAdjacencyList((point, neighbors) -> {
+			indent(outer + 1).append(point.getName()).append(" :");
+			for (PointNode neighbor : neighbors)
+				append(" ").append(neighbor.getName());
+			append("\n");
+		});
+		indent(outer).append("}\n");
 
 		return null;
 	}
@@ -40,21 +127,53 @@ public class UnparseVisitor implements ComponentNodeVisitor {
 	 * uses the Adjacency list representation
 	 */
 	@Override
-	public Object visitSegmentNode(SegmentNode node, Object o) {
+	public Void visitSegmentNode(SegmentNode node, Level level) {
 		return null;
 	}
 
 	@Override
-	public Object visitPointNodeDatabase(PointNodeDatabase node, Object o) {
-		// TODO
+	public Void visitPointNodeDatabase(PointNodeDatabase node, Level level) {
+		int outer = level._level;
+
+		indent(outer).append("{\n");
+		level._level = outer + 1;
+		node.forEachPoint(point -> point.accept(this, level));
+		level._level = outer;
+		indent(outer).append("}\n");
 
 		return null;
 	}
 
 	@Override
-	public Object visitPointNode(PointNode node, Object o) {
-		// TODO
+	public Void visitPointNode(PointNode node, Level level) {
+		indent(level._level).append("Point(").append(node.getName()).append(")(");
+		append(node.getX()).append(", ");
+		append(node.getY()).append(")\n");
 
 		return null;
 	}
-}
\ No newline at end of file
+
+	// the appending methods below return this visitor, for chaining, and
+	// rethrow IOExceptions as UncheckedIOExceptions
+
+	private UnparseVisitor indent(int level) {
+		return append(StringUtilities.indent(level));
+	}
+
+	private UnparseVisitor append(CharSequence text) {
+		try {
+			_out.append(text);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this;
+	}
+
+	private UnparseVisitor append(double value) {
+		if (_builder != null) {
+			_builder.append(value);
+			return this;
+		}
+		return append(Double.toString(value));
+	}
+}
@@ -0,0 +1,105 @@
+package utilities.io;
+
+/**
+ * A view of a CharSequence in which every '//'-style comment, up to the end of
+ * its line, reads as spaces.
+ * 
+ * Comments are blanked rather than removed, so offsets into the view are
+ * offsets into the underlying text. Lines are examined only when a char on
+ * them is read; the most recently read line is cached, so a front-to-back
+ * pass scans each line a constant number of times. The cache is an immutable
+ * object replaced as a whole, so the view may be read from several threads.
+ */
+public class CommentFilteredCharSequence implements CharSequence {
+	private final CharSequence _text;
+
+	// the most recently examined line
+	private Line _line;
+
+	/**
+	 * A line [start, end) of the text, with its comment starting at
+	 * commentStart (or end if it has none).
+	 */
+	private static class Line {
+		final int start;
+		final int end;
+		final int commentStart;
+
+		Line(int start, int end, int commentStart) {
+			this.start = start;
+			this.end = end;
+			this.commentStart = commentStart;
+		}
+	}
+
+	/**
+	 * @param text -- the text to filter
+	 */
+	public CommentFilteredCharSequence(CharSequence text) {
+		_text = text;
+		_line = new Line(0, 0, 0);
+	}
+
+	@Override
+	public int length() {
+		return _text.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		char c = _text.charAt(index);
+		if (c == '\n')
+			return c;
+
+		Line line = _line;
+		if (index < line.start || index >= line.end) {
+			line = findLine(index);
+			_line = line;
+		}
+
+		return index >= line.commentStart ? ' ' : c;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		StringBuilder builder = new StringBuilder(end - start);
+		for (int i = start; i < end; i++)
+			builder.append(charAt(i));
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+
+	/**
+	 * Finds the bounds and comment position of the line containing index.
+	 */
+	private Line findLine(int index) {
+		int start = index;
+		while (start > 0 && _text.charAt(start - 1) != '\n')
+			start--;
+
+		int end = start;
+		int commentStart = -1;
+		while (end < _text.length() && _text.charAt(end) != '\n') {
+			if (commentStart == -1 && startsComment(end))
+				commentStart = end;
+			end++;
+		}
+
+		return new Line(start, end, commentStart == -1 ? end : commentStart);
+	}
+
+	private boolean startsComment(int index) {
+		String prefix = global.Constants.INPUT_FILE_COMMENT_PREFIX;
+		if (index + prefix.length() > _text.length())
+			return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (_text.charAt(index + i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+}
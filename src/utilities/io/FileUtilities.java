@@ -3,8 +3,13 @@ package utilities.io;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public class FileUtilities {
 	/**
@@ -51,4 +56,58 @@ public class FileUtilities {
 
 		return builder.toString();
 	}
+
+	/**
+	 * Memory-maps a file and exposes its characters. An ASCII file is viewed
+	 * in place, a byte per char (see MappedCharSequence); any other file is
+	 * decoded as UTF-8, as readFile does.
+	 * 
+	 * @param filepath -- path to a specific file
+	 * @return view of the complete contents of the file
+	 */
+	public static CharSequence mapFile(String filepath) {
+		ByteBuffer bytes = mapBytes(filepath);
+		if (MappedCharSequence.isAscii(bytes))
+			return new MappedCharSequence(bytes);
+
+		try {
+			return StandardCharsets.UTF_8.newDecoder().decode(bytes);
+		} catch (CharacterCodingException e) {
+			System.err.println("File is not valid UTF-8: " + filepath);
+		}
+
+		return "";
+	}
+
+	/**
+	 * Memory-maps a file for reading.
+	 * 
+	 * @param filepath -- path to a specific file
+	 * @return the bytes of the complete file, or an empty buffer if it cannot
+	 *         be read
+	 */
+	public static ByteBuffer mapBytes(String filepath) {
+		Path filePath = Path.of(filepath);
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Unexpected file I/O problem with " + filePath);
+		}
+
+		return ByteBuffer.allocate(0);
+	}
+
+	/**
+	 * Memory-maps a file, filtering all comments using // ...
+	 * 
+	 * Comments are blanked out lazily as the view is read, and read as spaces
+	 * rather than being removed (see CommentFilteredCharSequence).
+	 * 
+	 * @param filepath -- path to a specific file
+	 * @return view of the complete contents of the file (minus comments)
+	 */
+	public static CharSequence mapFileFilterComments(String filepath) {
+		return new CommentFilteredCharSequence(mapFile(filepath));
+	}
 }
\ No newline at end of file
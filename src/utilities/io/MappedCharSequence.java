@@ -0,0 +1,76 @@
+package utilities.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only CharSequence view over the bytes of a ByteBuffer (such as a
+ * memory-mapped file), one char per byte.
+ * 
+ * This is only a correct decoding of ASCII bytes; check the buffer with
+ * isAscii first, and decode anything else as UTF-8. No bytes are copied until
+ * toString is called.
+ */
+public class MappedCharSequence implements CharSequence {
+	private final ByteBuffer _bytes;
+	private final int _offset;
+	private final int _length;
+
+	/**
+	 * @param bytes -- buffer whose bytes from index 0 to its limit are viewed
+	 */
+	public MappedCharSequence(ByteBuffer bytes) {
+		this(bytes, 0, bytes.limit());
+	}
+
+	private MappedCharSequence(ByteBuffer bytes, int offset, int length) {
+		_bytes = bytes;
+		_offset = offset;
+		_length = length;
+	}
+
+	/**
+	 * @return true if every byte of the buffer, from index 0 to its limit, is
+	 *         below 0x80.
+	 */
+	public static boolean isAscii(ByteBuffer bytes) {
+		int limit = bytes.limit();
+		int i = 0;
+		// eight bytes at a time; byte order does not matter to the high bits
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			if ((bytes.getLong(i) & 0x8080808080808080L) != 0)
+				return false;
+		}
+		for (; i < limit; i++) {
+			if (bytes.get(i) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int length() {
+		return _length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= _length)
+			throw new IndexOutOfBoundsException(index);
+		return (char) (_bytes.get(_offset + index) & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > _length || start > end)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + _length);
+		return new MappedCharSequence(_bytes, _offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		byte[] copy = new byte[_length];
+		_bytes.get(_offset, copy);
+		return new String(copy, StandardCharsets.US_ASCII);
+	}
+}
@@ -1,11 +1,24 @@
 package utilities.io;
 
 public class StringUtilities {
+	private static final String INDENT = "    ";
+
+	// indentation strings for the levels met in practice, built once so that
+	// unparsing does not make a new one for every line
+	private static final String[] INDENTS = new String[16];
+
+	static {
+		for (int level = 0; level < INDENTS.length; level++)
+			INDENTS[level] = INDENT.repeat(level);
+	}
+
 	/**
 	 * @param level -- levels to which we indent
 	 * @return a string containg the corresponding number of spaces requested
 	 */
 	public static String indent(int level) {
-		return "    ".repeat(level);
+		if (level >= 0 && level < INDENTS.length)
+			return INDENTS[level];
+		return INDENT.repeat(level);
 	}
 }
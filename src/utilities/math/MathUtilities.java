@@ -10,10 +10,28 @@ public class MathUtilities {
     public static final double EPSILON_POWER = 6;
     public static final double EPSILON = Math.pow(10, -EPSILON_POWER); // 0.000001
 
+    /**
+     * Width of the cells used to bucket coordinates. At twice EPSILON, every
+     * tolerance window (x - EPSILON, x + EPSILON) spans at most two cells.
+     */
+    public static final double QUANTUM = 2 * EPSILON;
+
     public static boolean doubleEquals(double a, double b) {
         return Math.abs(a - b) < EPSILON;
     }
 
+    /**
+     * Maps a coordinate onto the index of the QUANTUM-wide cell containing it.
+     * 
+     * The mapping is monotonic, so every value b with doubleEquals(a, b) falls
+     * in a cell between quantize(a - EPSILON) and quantize(a + EPSILON).
+     * 
+     * @param x
+     */
+    public static long quantize(double x) {
+        return (long) Math.floor(x / QUANTUM);
+    }
+
     /**
      * Given a value like 0.123456789
      * we return a double with only the epsilon precision we want:
@@ -0,0 +1,83 @@
+package input.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import input.components.point.PointNode;
+import input.components.segment.ConcurrentSegmentNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
+
+/**
+ * Measures how adding edges from several threads scales, comparing
+ * ConcurrentSegmentNodeDatabase against a SegmentNodeDatabase behind a single
+ * lock.
+ *
+ * Usage: ConcurrentSegmentNodeDatabaseBenchmark [grid side] [max threads]
+ */
+public class ConcurrentSegmentNodeDatabaseBenchmark {
+	public static void main(String[] args) throws InterruptedException {
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		List<PointNode[]> edges = new ArrayList<>();
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				PointNode point = new PointNode("P" + i + "_" + j, i, j);
+				if (i + 1 < side)
+					edges.add(new PointNode[] { point, new PointNode(i + 1, j) });
+				if (j + 1 < side)
+					edges.add(new PointNode[] { point, new PointNode(i, j + 1) });
+			}
+		}
+		Collections.shuffle(edges, new Random(14));
+		System.out.println(edges.size() + " edges");
+
+		// run twice so that the second pass is measured after JIT warm-up
+		for (int pass = 0; pass < 2; pass++) {
+			System.out.println("--- pass " + (pass + 1));
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				long locked = time(edges, threads, () -> {
+					SegmentNodeDatabase db = new SegmentNodeDatabase();
+					return (from, to) -> {
+						synchronized (db) {
+							db.addUndirectedEdge(from, to);
+						}
+					};
+				});
+				long concurrent = time(edges, threads, () -> {
+					SegmentNodeDatabase db = new ConcurrentSegmentNodeDatabase();
+					return db::addUndirectedEdge;
+				});
+				System.out.printf("%3d threads   single lock %8.1f ms   concurrent %8.1f ms%n", threads, locked / 1e6,
+						concurrent / 1e6);
+			}
+		}
+	}
+
+	interface EdgeSink {
+		void add(PointNode from, PointNode to);
+	}
+
+	private static long time(List<PointNode[]> edges, int threads, Supplier<EdgeSink> sinks)
+			throws InterruptedException {
+		EdgeSink sink = sinks.get();
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int first = t;
+			workers.add(new Thread(() -> {
+				for (int i = first; i < edges.size(); i += threads)
+					sink.add(edges.get(i)[0], edges.get(i)[1]);
+			}));
+		}
+
+		long start = System.nanoTime();
+		for (Thread worker : workers)
+			worker.start();
+		for (Thread worker : workers)
+			worker.join();
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,182 @@
+package input.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import input.components.FigureNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
+import input.parser.BinaryFigureParser;
+import input.parser.JSONParser;
+import input.visitor.BinaryWriterVisitor;
+import input.visitor.JSONWriterVisitor;
+import input.visitor.UnparseVisitor;
+import utilities.io.FileUtilities;
+
+/**
+ * Measures throughput and allocation of parsing, point lookup, edge counting,
+ * segment listing and streaming, unparsing (also through an untyped visitor
+ * which allocates a context pair per node), and writing and loading JSON and
+ * binary figures, over the figures in testFiles and over generated grid
+ * figures of increasing size.
+ *
+ * Each operation is warmed up and then repeated for a fixed time. Allocation
+ * is read from the thread's allocation counter, so the figures reported are
+ * bytes allocated per operation by the benchmark thread.
+ *
+ * Usage: FigureBenchmark [seconds per operation] [grid side ...]
+ */
+public class FigureBenchmark {
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	// results are written here so that the JIT cannot discard the operations
+	static volatile Object _sink;
+
+	/**
+	 * One benchmarked operation; i counts the calls, so that lookups can cycle
+	 * through their keys.
+	 */
+	interface Operation {
+		Object run(int i);
+	}
+
+	public static void main(String[] args) {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 0.5;
+		int[] sides = args.length > 1
+				? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 10, 50, 100 };
+		long nanos = (long) (seconds * 1e9);
+
+		List<String> names = new ArrayList<>();
+		List<String> jsons = new ArrayList<>();
+		File[] files = new File("testFiles").listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File file : files) {
+				names.add(file.getName());
+				jsons.add(FileUtilities.readFileFilterComments(file.getPath()));
+			}
+		}
+		for (int side : sides) {
+			names.add("grid " + side + "x" + side);
+			jsons.add(SyntheticFigures.figureJson(side));
+		}
+
+		System.out.printf("%-40s %-22s %14s %12s %14s%n", "figure", "operation", "ops/s", "us/op", "B/op");
+		for (int f = 0; f < names.size(); f++)
+			benchmarkFigure(names.get(f), jsons.get(f), nanos);
+	}
+
+	private static void benchmarkFigure(String name, String json, long nanos) {
+		JSONParser parser = new JSONParser();
+		FigureNode figure = (FigureNode) parser.parse(json);
+		PointNodeDatabase points = figure.getPointsDatabase();
+		SegmentNodeDatabase segments = figure.getSegments();
+
+		// lookup keys, taken from the figure's text
+		JSONArray JSONpoints = new JSONObject(json).getJSONObject("Figure").getJSONArray("Points");
+		int n = JSONpoints.length();
+		String[] pointNames = new String[n];
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		for (int i = 0; i < n; i++) {
+			JSONObject JSONpoint = JSONpoints.getJSONObject(i);
+			pointNames[i] = JSONpoint.getString("name");
+			xs[i] = JSONpoint.getDouble("x");
+			ys[i] = JSONpoint.getDouble("y");
+		}
+
+		measure(name, "parse", nanos, i -> parser.parse(json));
+		measure(name, "getPoint(name)", nanos, i -> points.getPoint(pointNames[i % n]));
+		measure(name, "getPoint(x, y)", nanos, i -> points.getPoint(xs[i % n], ys[i % n]));
+		measure(name, "numUndirectedEdges", nanos, i -> segments.numUndirectedEdges());
+		measure(name, "asSegmentList", nanos, i -> segments.asSegmentList());
+		measure(name, "asUniqueSegmentList", nanos, i -> segments.asUniqueSegmentList());
+		measure(name, "forEachEdge", nanos, i -> {
+			int[] count = new int[1];
+			segments.forEachEdge((from, to) -> count[0]++);
+			return count;
+		});
+		measure(name, "uniqueSegmentStream", nanos, i -> segments.uniqueSegmentStream().count());
+		measure(name, "unparse", nanos, i -> {
+			StringBuilder sb = new StringBuilder();
+			figure.unparse(sb, 0);
+			return sb;
+		});
+		// the same text through the untyped visitor, with a pair per node
+		StringBuilder expected = new StringBuilder();
+		figure.unparse(expected, 0);
+		StringBuilder actual = new StringBuilder();
+		figure.accept(new PairContextUnparseVisitor(), new AbstractMap.SimpleEntry<StringBuilder, Integer>(actual, 0));
+		if (!expected.toString().equals(actual.toString()))
+			throw new AssertionError("PairContextUnparseVisitor differs from UnparseVisitor on " + name);
+		measure(name, "unparse(pair context)", nanos, i -> {
+			StringBuilder sb = new StringBuilder();
+			figure.accept(new PairContextUnparseVisitor(), new AbstractMap.SimpleEntry<StringBuilder, Integer>(sb, 0));
+			return sb;
+		});
+		measure(name, "unparse(Writer)", nanos, i -> {
+			new UnparseVisitor(Writer.nullWriter()).unparse(figure, 0);
+			return figure;
+		});
+		measure(name, "JSONWriterVisitor", nanos, i -> {
+			new JSONWriterVisitor(OutputStream.nullOutputStream()).write(figure);
+			return figure;
+		});
+		measure(name, "BinaryWriterVisitor", nanos, i -> {
+			new BinaryWriterVisitor(OutputStream.nullOutputStream()).write(figure);
+			return figure;
+		});
+
+		// loaded from off-heap memory, as from a mapped file
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		new BinaryWriterVisitor(binary).write(figure);
+		ByteBuffer bytes = ByteBuffer.allocateDirect(binary.size()).put(binary.toByteArray());
+		BinaryFigureParser binaryParser = new BinaryFigureParser();
+		measure(name, "binary parse", nanos, i -> binaryParser.parse(bytes));
+	}
+
+	private static void measure(String figure, String operation, long nanos, Operation op) {
+		// warm-up for half the measurement time
+		run(op, nanos / 2);
+
+		long bytes = THREADS.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		long ops = run(op, nanos);
+		long elapsed = System.nanoTime() - start;
+		bytes = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+
+		System.out.printf("%-40s %-22s %14.1f %12.3f %14.1f%n", figure, operation, ops / (elapsed / 1e9),
+				elapsed / 1e3 / ops, (double) bytes / ops);
+	}
+
+	/**
+	 * Repeats the operation in growing batches until the time has passed.
+	 *
+	 * @return the number of calls made.
+	 */
+	private static long run(Operation op, long nanos) {
+		long start = System.nanoTime();
+		long ops = 0;
+		int batch = 1;
+		do {
+			for (int i = 0; i < batch; i++)
+				_sink = op.run((int) ((ops + i) & Integer.MAX_VALUE));
+			ops += batch;
+			batch = Math.min(batch * 2, 1 << 16);
+		} while (System.nanoTime() - start < nanos);
+		return ops;
+	}
+}
@@ -0,0 +1,89 @@
+package input.benchmark;
+
+import java.util.AbstractMap;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+import input.visitor.ComponentNodeVisitor;
+import utilities.io.StringUtilities;
+
+/**
+ * Unparses a figure the way the untyped visitors did, for comparison with
+ * UnparseVisitor: the context is an Object, and each node is handed a new
+ * (StringBuilder, boxed level) pair. Gives the same text as UnparseVisitor.
+ */
+public class PairContextUnparseVisitor implements ComponentNodeVisitor<Object, Object> {
+	@SuppressWarnings("unchecked")
+	private static AbstractMap.SimpleEntry<StringBuilder, Integer> unpack(Object o) {
+		return (AbstractMap.SimpleEntry<StringBuilder, Integer>) o;
+	}
+
+	private static Object pair(StringBuilder sb, int level) {
+		return new AbstractMap.SimpleEntry<StringBuilder, Integer>(sb, level);
+	}
+
+	@Override
+	public Object visitFigureNode(FigureNode node, Object o) {
+		StringBuilder sb = unpack(o).getKey();
+		int level = unpack(o).getValue();
+
+		sb.append(StringUtilities.indent(level)).append("Figure\n");
+		sb.append(StringUtilities.indent(level)).append("{\n");
+		sb.append(StringUtilities.indent(level + 1)).append("Description: \"").append(node.getDescription()).append("\"\n");
+		sb.append(StringUtilities.indent(level + 1)).append("Points:\n");
+		node.getPointsDatabase().accept(this, pair(sb, level + 1));
+		sb.append(StringUtilities.indent(level + 1)).append("Segments:\n");
+		node.getSegments().accept(this, pair(sb, level + 1));
+		sb.append(StringUtilities.indent(level)).append("}\n");
+
+		return null;
+	}
+
+	@Override
+	public Object visitSegmentDatabaseNode(SegmentNodeDatabase node, Object o) {
+		StringBuilder sb = unpack(o).getKey();
+		int level = unpack(o).getValue();
+
+		sb.append(StringUtilities.indent(level)).append("{\n");
+		node.forEachAdjacencyList((point, neighbors) -> {
+			sb.append(StringUtilities.indent(level + 1)).append(point.getName()).append(" :");
+			for (PointNode neighbor : neighbors)
+				sb.append(" ").append(neighbor.getName());
+			sb.append("\n");
+		});
+		sb.append(StringUtilities.indent(level)).append("}\n");
+
+		return null;
+	}
+
+	@Override
+	public Object visitSegmentNode(SegmentNode node, Object o) {
+		return null;
+	}
+
+	@Override
+	public Object visitPointNodeDatabase(PointNodeDatabase node, Object o) {
+		StringBuilder sb = unpack(o).getKey();
+		int level = unpack(o).getValue();
+
+		sb.append(StringUtilities.indent(level)).append("{\n");
+		node.forEachPoint(point -> point.accept(this, pair(sb, level + 1)));
+		sb.append(StringUtilities.indent(level)).append("}\n");
+
+		return null;
+	}
+
+	@Override
+	public Object visitPointNode(PointNode node, Object o) {
+		StringBuilder sb = unpack(o).getKey();
+		int level = unpack(o).getValue();
+
+		sb.append(StringUtilities.indent(level)).append("Point(").append(node.getName()).append(")(");
+		sb.append(node.getX()).append(", ").append(node.getY()).append(")\n");
+
+		return null;
+	}
+}
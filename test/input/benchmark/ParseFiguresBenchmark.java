@@ -0,0 +1,41 @@
+package input.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import input.components.FigureNode;
+import input.parser.JSONParser;
+
+/**
+ * Measures how parsing a "Figures" document scales with the parallelism of
+ * the parser's pool, over generated grid figures.
+ *
+ * Usage: ParseFiguresBenchmark [number of figures] [grid side]
+ */
+public class ParseFiguresBenchmark {
+	public static void main(String[] args) {
+		int figures = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+		int side = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		String json = SyntheticFigures.figuresJson(figures, side);
+		System.out.println(figures + " figures of " + side * side + " points, " + json.length() / 1024 + " KB");
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				JSONParser parser = new JSONParser(pool);
+				// the first run warms up the JIT
+				parser.parseFigures(json);
+
+				long start = System.nanoTime();
+				List<FigureNode> parsed = parser.parseFigures(json);
+				long nanos = System.nanoTime() - start;
+				System.out.printf("parallelism %3d %10.1f ms %10.1f figures/s (%d parsed)%n", parallelism, nanos / 1e6,
+						figures / (nanos / 1e9), parsed.size());
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package input.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+
+/**
+ * Compares the KD-tree queries of PointNodeDatabase against brute force scans
+ * over the same points.
+ *
+ * Usage: PointNodeKDTreeBenchmark [number of points] [number of queries]
+ */
+public class PointNodeKDTreeBenchmark {
+	private static final double SIZE = 1000;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+		Random random = new Random(223);
+		List<PointNode> points = new ArrayList<>();
+		for (int i = 0; i < n; i++)
+			points.add(new PointNode("P" + i, random.nextDouble() * SIZE, random.nextDouble() * SIZE));
+
+		double[] xs = new double[queries];
+		double[] ys = new double[queries];
+		for (int i = 0; i < queries; i++) {
+			xs[i] = random.nextDouble() * SIZE;
+			ys[i] = random.nextDouble() * SIZE;
+		}
+
+		long start = System.nanoTime();
+		PointNodeDatabase pointDatabase = new PointNodeDatabase(points);
+		pointDatabase.nearest(0, 0);
+		report("load + bulk build", n, System.nanoTime() - start);
+
+		// run twice so that the second pass is measured after JIT warm-up
+		for (int pass = 0; pass < 2; pass++) {
+			System.out.println("--- pass " + (pass + 1) + " (" + n + " points, " + queries + " queries)");
+			long checksum = 0;
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum += pointDatabase.nearest(xs[i], ys[i]).hashCode();
+			report("nearest (tree)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum -= bruteNearest(points, xs[i], ys[i]).hashCode();
+			report("nearest (brute force)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum += pointDatabase.kNearest(xs[i], ys[i], 10).size();
+			report("kNearest k=10 (tree)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum += pointDatabase.withinRadius(xs[i], ys[i], 5).size();
+			report("withinRadius r=5 (tree)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum -= bruteWithinRadius(points, xs[i], ys[i], 5).size();
+			report("withinRadius r=5 (brute force)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum += pointDatabase.withinBox(xs[i], ys[i], xs[i] + 10, ys[i] + 10).size();
+			report("withinBox 10x10 (tree)", queries, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++)
+				checksum -= bruteWithinBox(points, xs[i], ys[i], xs[i] + 10, ys[i] + 10).size();
+			report("withinBox 10x10 (brute force)", queries, System.nanoTime() - start);
+
+			System.out.println("checksum " + checksum);
+		}
+	}
+
+	private static void report(String name, int operations, long nanos) {
+		System.out.printf("%-32s %12.1f us/op%n", name, nanos / 1000.0 / operations);
+	}
+
+	private static PointNode bruteNearest(List<PointNode> points, double x, double y) {
+		PointNode best = null;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (PointNode p : points) {
+			double dx = p.getX() - x;
+			double dy = p.getY() - y;
+			if (dx * dx + dy * dy < bestDistance) {
+				best = p;
+				bestDistance = dx * dx + dy * dy;
+			}
+		}
+		return best;
+	}
+
+	private static List<PointNode> bruteWithinRadius(List<PointNode> points, double x, double y, double radius) {
+		List<PointNode> found = new ArrayList<>();
+		for (PointNode p : points) {
+			double dx = p.getX() - x;
+			double dy = p.getY() - y;
+			if (dx * dx + dy * dy <= radius * radius)
+				found.add(p);
+		}
+		return found;
+	}
+
+	private static List<PointNode> bruteWithinBox(List<PointNode> points, double minX, double minY, double maxX,
+			double maxY) {
+		List<PointNode> found = new ArrayList<>();
+		for (PointNode p : points) {
+			if (p.getX() >= minX && p.getX() <= maxX && p.getY() >= minY && p.getY() <= maxY)
+				found.add(p);
+		}
+		return found;
+	}
+}
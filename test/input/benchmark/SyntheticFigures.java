@@ -0,0 +1,59 @@
+package input.benchmark;
+
+/**
+ * Generates figure JSON of any size for the benchmarks. Each figure is a
+ * side x side grid of points joined to their right and upper neighbors.
+ */
+public class SyntheticFigures {
+	/**
+	 * @return a document with a single "Figure".
+	 */
+	public static String figureJson(int side) {
+		StringBuilder sb = new StringBuilder("{ \"Figure\": ");
+		appendGrid(sb, "grid " + side + "x" + side, side, 0);
+		return sb.append("\n}\n").toString();
+	}
+
+	/**
+	 * @return a document with a "Figures" array of grids, each shifted from the
+	 *         one before.
+	 */
+	public static String figuresJson(int figures, int side) {
+		StringBuilder sb = new StringBuilder("{ \"Figures\": [\n");
+		for (int f = 0; f < figures; f++) {
+			if (f > 0)
+				sb.append(",\n");
+			appendGrid(sb, "grid " + f, side, f * 0.5);
+		}
+		return sb.append("\n] }\n").toString();
+	}
+
+	private static void appendGrid(StringBuilder sb, String description, int side, double xOffset) {
+		sb.append("{ \"Description\": \"").append(description).append("\",\n  \"Points\": [\n");
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				if (i + j > 0)
+					sb.append(",\n");
+				sb.append("    { \"name\": \"P").append(i).append('_').append(j).append("\", \"x\": ").append(i + xOffset)
+						.append(", \"y\": ").append(j * 1.25).append(" }");
+			}
+		}
+		sb.append("\n  ],\n  \"Segments\": [\n");
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				if (i + j > 0)
+					sb.append(",\n");
+				sb.append("    { \"P").append(i).append('_').append(j).append("\": [");
+				String separator = "";
+				if (i + 1 < side) {
+					sb.append("\"P").append(i + 1).append('_').append(j).append('"');
+					separator = ", ";
+				}
+				if (j + 1 < side)
+					sb.append(separator).append("\"P").append(i).append('_').append(j + 1).append('"');
+				sb.append("] }");
+			}
+		}
+		sb.append("\n  ]\n}");
+	}
+}
@@ -0,0 +1,74 @@
+package input.components.point;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import utilities.math.MathUtilities;
+
+public class PackedPointNodeDatabaseTest {
+  private List<PointNode> _pointListNamed = List.of(
+      new PointNode("A", 0, 0),
+      new PointNode("B", 1, 1),
+      new PointNode("C", 0, 1));
+
+  @Test
+  void packedPointNodeDatabaseTestContains() {
+    PointNodeDatabase pointDatabase = new PackedPointNodeDatabase(_pointListNamed);
+
+    assertEquals(3, pointDatabase.size());
+    for (PointNode p : _pointListNamed) {
+      assertTrue(pointDatabase.contains(p), "point database did not contain " + p + " but was expected to.");
+      assertTrue(pointDatabase.contains(p.getX(), p.getY()));
+    }
+    assertFalse(pointDatabase.contains(1, 0));
+  }
+
+  @Test
+  void packedPointNodeDatabaseTestViews() {
+    PointNodeDatabase pointDatabase = new PackedPointNodeDatabase(_pointListNamed);
+
+    for (PointNode p : _pointListNamed) {
+      PointNode view = pointDatabase.getPoint(p.getName());
+
+      assertEquals(p, view);
+      assertEquals(p.getName(), view.getName());
+      assertEquals(p.getName(), pointDatabase.getName(p.getX(), p.getY() + MathUtilities.EPSILON / 2));
+    }
+  }
+
+  @Test
+  void packedPointNodeDatabaseTestAnonymous() {
+    PointNodeDatabase pointDatabase = new PackedPointNodeDatabase();
+    pointDatabase.put(new PointNode(2, 3));
+
+    assertEquals(PointNode.ANONYMOUS, pointDatabase.getPoint(2, 3).getName());
+    assertNull(pointDatabase.getPoint(PointNode.ANONYMOUS));
+  }
+
+  @Test
+  void packedPointNodeDatabaseTestUnparseMatches() {
+    StringBuilder expected = new StringBuilder();
+    new PointNodeDatabase(_pointListNamed).unparse(expected, 0);
+
+    StringBuilder actual = new StringBuilder();
+    new PackedPointNodeDatabase(_pointListNamed).unparse(actual, 0);
+
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  void packedPointNodeDatabaseTestManyPoints() {
+    PointNodeDatabase pointDatabase = new PackedPointNodeDatabase();
+    for (int i = 0; i < 1000; i++)
+      pointDatabase.put(new PointNode("P" + i, i, -i));
+
+    assertEquals(1000, pointDatabase.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-i, pointDatabase.getPoint("P" + i).getY());
+      assertEquals("P" + i, pointDatabase.getName(i, -i));
+    }
+  }
+}
@@ -6,6 +6,8 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import utilities.math.MathUtilities;
+
 public class PointNodeDatabaseTest {
   private List<PointNode> _pointList = List.of(
       new PointNode(0, 0),
@@ -100,4 +102,123 @@ public class PointNodeDatabaseTest {
       assertEquals(p, pointDatabase.getPoint(p.getX(), p.getY()));
     }
   }
+
+  @Test
+  void pointNodeDatabaseTestGetPointWithinEpsilon() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(_pointListNamed);
+
+    // offsets within epsilon in every direction, including across cell borders
+    double offset = MathUtilities.EPSILON / 2;
+    for (PointNode p : _pointListNamed) {
+      for (int dx = -1; dx <= 1; dx++) {
+        for (int dy = -1; dy <= 1; dy++) {
+          assertEquals(p.getName(), pointDatabase.getName(p.getX() + dx * offset, p.getY() + dy * offset));
+        }
+      }
+    }
+
+    assertNull(pointDatabase.getPoint(2 * MathUtilities.EPSILON, 0));
+    assertFalse(pointDatabase.contains(0, -2 * MathUtilities.EPSILON));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointReturnsEarliest() {
+    // (0.6e-6, 0) is equal to both of the stored points, which are not equal
+    // to each other; the earlier one should be returned
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(List.of(
+        new PointNode("A", 0, 0),
+        new PointNode("B", 1.2 * MathUtilities.EPSILON, 0)));
+
+    assertEquals("A", pointDatabase.getName(0.6 * MathUtilities.EPSILON, 0));
+    assertEquals("B", pointDatabase.getName(1.7 * MathUtilities.EPSILON, 0));
+  }
+
+  @Test
+  void pointNodeDatabaseTestPutDuplicate() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(_pointListNamed);
+    pointDatabase.put(new PointNode("D", 0, MathUtilities.EPSILON / 10));
+
+    assertEquals("A", pointDatabase.getName(0, 0));
+  }
+
+  @Test
+  void pointNodeDatabaseTestPutNull() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(_pointListNamed);
+    pointDatabase.put(null);
+
+    assertEquals(_pointListNamed.size(), pointDatabase.size());
+    assertFalse(pointDatabase.contains(null));
+  }
+
+  @Test
+  void pointNodeDatabaseTestManyPoints() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase();
+    for (int i = 0; i < 1000; i++)
+      pointDatabase.put(new PointNode("P" + i, i * 0.5, -i * MathUtilities.EPSILON * 3));
+
+    for (int i = 0; i < 1000; i++)
+      assertEquals("P" + i, pointDatabase.getName(i * 0.5, -i * MathUtilities.EPSILON * 3));
+    assertNull(pointDatabase.getPoint(0.25, 0));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointByName() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(_pointListNamed);
+
+    for (PointNode p : _pointListNamed) {
+      assertSame(p, pointDatabase.getPoint(p.getName()));
+    }
+    assertNull(pointDatabase.getPoint("D"));
+    assertNull(pointDatabase.getPoint((String) null));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointByNameDuplicate() {
+    PointNode first = new PointNode("A", 0, 0);
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(List.of(first, new PointNode("A", 5, 5)));
+
+    // the first point keeps the name, the second is still found by coordinates
+    assertSame(first, pointDatabase.getPoint("A"));
+    assertEquals("A", pointDatabase.getName(5, 5));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointByNameMerged() {
+    // B is equal to A, so it is not stored, but its name finds A
+    PointNode a = new PointNode("A", 0, 0);
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(List.of(a,
+        new PointNode("B", MathUtilities.EPSILON / 10, 0), new PointNode("C", 1, 0)));
+    pointDatabase.put(new PointNode("C", 1, MathUtilities.EPSILON / 10));
+    pointDatabase.put(new PointNode("D", MathUtilities.EPSILON / 5, 0));
+    pointDatabase.put(new PointNode("D", 5, 5));
+
+    assertEquals(3, pointDatabase.size());
+    assertSame(a, pointDatabase.getPoint("A"));
+    assertSame(a, pointDatabase.getPoint("B"));
+    assertSame(a, pointDatabase.getPoint("D"));
+    assertEquals("C", pointDatabase.getPoint("C").getName());
+    assertEquals("A", pointDatabase.getName(MathUtilities.EPSILON / 10, 0));
+
+    PackedPointNodeDatabase packed = new PackedPointNodeDatabase(List.of(a,
+        new PointNode("B", 0, MathUtilities.EPSILON / 10)));
+    assertEquals(1, packed.size());
+    assertEquals(a, packed.getPoint("B"));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointByNameAnonymous() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(_pointList);
+
+    assertNull(pointDatabase.getPoint(PointNode.ANONYMOUS));
+  }
+
+  @Test
+  void pointNodeDatabaseTestGetPointByNameManyPoints() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase();
+    for (int i = 0; i < 1000; i++)
+      pointDatabase.put(new PointNode("P" + i, i, i));
+
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i, pointDatabase.getPoint("P" + i).getX());
+  }
 }
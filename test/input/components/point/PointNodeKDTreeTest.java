@@ -0,0 +1,123 @@
+package input.components.point;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class PointNodeKDTreeTest {
+  private static double distance(PointNode p, double x, double y) {
+    return Math.hypot(p.getX() - x, p.getY() - y);
+  }
+
+  private static List<PointNode> randomPoints(Random random, int n) {
+    List<PointNode> points = new ArrayList<>();
+    for (int i = 0; i < n; i++)
+      // integer coordinates make ties on splitting planes common
+      points.add(new PointNode("P" + i, random.nextInt(100), random.nextInt(100)));
+    return points;
+  }
+
+  private static Set<String> names(List<PointNode> points) {
+    Set<String> names = new HashSet<>();
+    for (PointNode p : points)
+      names.add(p.getName());
+    return names;
+  }
+
+  /**
+   * Compares every query against brute force over the stored points.
+   */
+  private static void assertMatchesBruteForce(PointNodeDatabase pointDatabase, Random random) {
+    List<PointNode> stored = new ArrayList<>();
+    for (int i = 0; i < pointDatabase.size(); i++)
+      stored.add(pointDatabase.pointAt(i));
+
+    for (int q = 0; q < 50; q++) {
+      double x = random.nextDouble() * 120 - 10;
+      double y = random.nextDouble() * 120 - 10;
+
+      List<PointNode> sorted = new ArrayList<>(stored);
+      sorted.sort(Comparator.comparingDouble(p -> distance(p, x, y)));
+
+      assertEquals(distance(sorted.get(0), x, y), distance(pointDatabase.nearest(x, y), x, y));
+
+      List<PointNode> kNearest = pointDatabase.kNearest(x, y, 7);
+      assertEquals(7, kNearest.size());
+      for (int i = 0; i < 7; i++)
+        assertEquals(distance(sorted.get(i), x, y), distance(kNearest.get(i), x, y));
+
+      double radius = random.nextDouble() * 20;
+      List<PointNode> expected = new ArrayList<>();
+      for (PointNode p : stored)
+        if (distance(p, x, y) <= radius)
+          expected.add(p);
+      assertEquals(names(expected), names(pointDatabase.withinRadius(x, y, radius)));
+
+      expected.clear();
+      for (PointNode p : stored)
+        if (p.getX() >= x - radius && p.getX() <= x && p.getY() >= y && p.getY() <= y + radius)
+          expected.add(p);
+      assertEquals(names(expected), names(pointDatabase.withinBox(x - radius, y, x, y + radius)));
+    }
+  }
+
+  @Test
+  void kdTreeEmptyTest() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase();
+
+    assertNull(pointDatabase.nearest(0, 0));
+    assertTrue(pointDatabase.kNearest(0, 0, 3).isEmpty());
+    assertTrue(pointDatabase.withinRadius(0, 0, 10).isEmpty());
+    assertTrue(pointDatabase.withinBox(-1, -1, 1, 1).isEmpty());
+  }
+
+  @Test
+  void kdTreeSimpleTest() {
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(List.of(
+        new PointNode("A", 0, 0),
+        new PointNode("B", 4, 0),
+        new PointNode("C", 0, 3),
+        new PointNode("D", 10, 10)));
+
+    assertEquals("B", pointDatabase.nearest(3, 1).getName());
+    List<PointNode> kNearest = pointDatabase.kNearest(0, 1, 3);
+    assertEquals("A", kNearest.get(0).getName());
+    assertEquals("C", kNearest.get(1).getName());
+    assertEquals("B", kNearest.get(2).getName());
+    assertEquals(4, pointDatabase.kNearest(0, 1, 10).size());
+    assertEquals(Set.of("A", "B", "C"), names(pointDatabase.withinRadius(0, 0, 4)));
+    assertEquals(Set.of("A", "C"), names(pointDatabase.withinBox(0, 0, 1, 3)));
+  }
+
+  @Test
+  void kdTreeBulkBuiltTest() {
+    Random random = new Random(223);
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(randomPoints(random, 2000));
+
+    assertMatchesBruteForce(pointDatabase, random);
+  }
+
+  @Test
+  void kdTreeIncrementalTest() {
+    Random random = new Random(5);
+    PointNodeDatabase pointDatabase = new PointNodeDatabase(randomPoints(random, 100));
+    pointDatabase.nearest(0, 0);
+
+    // inserted into the existing tree, in an order that unbalances it
+    for (int i = 0; i < 80; i++)
+      pointDatabase.put(new PointNode("Q" + i, 100 + i, 100 + i));
+    assertMatchesBruteForce(pointDatabase, random);
+
+    // enough to trigger a rebuild
+    for (PointNode p : randomPoints(random, 1000))
+      pointDatabase.put(new PointNode("R" + p.getName(), p.getX() + 0.5, p.getY()));
+    assertMatchesBruteForce(pointDatabase, random);
+  }
+}
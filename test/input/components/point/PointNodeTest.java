@@ -2,8 +2,15 @@ package input.components.point;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.jupiter.api.Test;
 
+import utilities.math.MathUtilities;
+
 public class PointNodeTest {
   @Test
   void pointNodeTest() {
@@ -119,4 +126,34 @@ public class PointNodeTest {
 
     assertEquals("A(5.0, 8.0)", test.toString());
   }
+
+  @Test
+  void pointNodeHashCodesWithinEpsilonTest() {
+    PointNode test1 = new PointNode(5, 2.5);
+    PointNode test2 = new PointNode(5 + MathUtilities.EPSILON / 10, 2.5 + MathUtilities.EPSILON / 10);
+
+    assertEquals(test1, test2);
+    assertEquals(test1.hashCode(), test2.hashCode());
+  }
+
+  @Test
+  void pointNodeGetTolerantTest() {
+    // the two points are equal but lie on either side of a cell border
+    double border = MathUtilities.QUANTUM * 1000;
+    PointNode stored = new PointNode(border - MathUtilities.EPSILON / 4, 1);
+    PointNode probe = new PointNode(border + MathUtilities.EPSILON / 4, 1);
+
+    Map<PointNode, String> map = new HashMap<>();
+    map.put(stored, "stored");
+    Set<PointNode> set = new HashSet<>(map.keySet());
+
+    assertEquals(stored, probe);
+    assertEquals("stored", PointNode.getTolerant(map, probe));
+    assertTrue(PointNode.containsTolerant(set, probe));
+
+    PointNode other = new PointNode(border + MathUtilities.EPSILON, 1);
+    assertNull(PointNode.getTolerant(map, other));
+    assertFalse(PointNode.containsTolerant(set, other));
+    assertNull(PointNode.getTolerant(map, null));
+  }
 }
@@ -0,0 +1,214 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.parser.JSONParser;
+import utilities.io.FileUtilities;
+
+public class CollinearSegmentsTest {
+	private static final PointNode A = new PointNode("A", 0, 0);
+	private static final PointNode B = new PointNode("B", 2, 0);
+	private static final PointNode C = new PointNode("C", 4, 0);
+	private static final PointNode D = new PointNode("D", 6, 0);
+
+	private static SegmentNodeDatabase database(PointNode... ends) {
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		for (int i = 0; i < ends.length; i += 2)
+			db.addUndirectedEdge(ends[i], ends[i + 1]);
+		return db;
+	}
+
+	private static Set<SegmentNode> segments(SegmentNodeDatabase db) {
+		List<SegmentNode> list = db.asUniqueSegmentList();
+		Set<SegmentNode> set = Set.copyOf(list);
+		assertEquals(list.size(), set.size());
+		return set;
+	}
+
+	private static double cross(PointNode p, PointNode q, PointNode r) {
+		return (q.getX() - p.getX()) * (r.getY() - p.getY()) - (q.getY() - p.getY()) * (r.getX() - p.getX());
+	}
+
+	private static boolean collinear(SegmentNode s, SegmentNode t) {
+		return Math.abs(cross(s.getPoint1(), s.getPoint2(), t.getPoint1())) < 1e-9
+				&& Math.abs(cross(s.getPoint1(), s.getPoint2(), t.getPoint2())) < 1e-9;
+	}
+
+	/**
+	 * @return true if the point lies on the segment; strictly inside it if
+	 *         interior is set.
+	 */
+	private static boolean onSegment(SegmentNode s, PointNode p, boolean interior) {
+		if (Math.abs(cross(s.getPoint1(), s.getPoint2(), p)) > 1e-9)
+			return false;
+		double dx = s.getPoint2().getX() - s.getPoint1().getX();
+		double dy = s.getPoint2().getY() - s.getPoint1().getY();
+		double t = ((p.getX() - s.getPoint1().getX()) * dx + (p.getY() - s.getPoint1().getY()) * dy)
+				/ (dx * dx + dy * dy);
+		return interior ? t > 1e-9 && t < 1 - 1e-9 : t > -1e-9 && t < 1 + 1e-9;
+	}
+
+	private static boolean covered(Set<SegmentNode> segments, PointNode p) {
+		for (SegmentNode s : segments)
+			if (onSegment(s, p, false))
+				return true;
+		return false;
+	}
+
+	@Test
+	void chainedFigureTest() {
+		JSONParser parser = new JSONParser();
+		FigureNode figure = (FigureNode) parser
+				.parse(FileUtilities.readFileFilterComments("testFiles/collinear_line_segments.json"));
+		PointNodeDatabase points = figure.getPointsDatabase();
+		SegmentNodeDatabase db = figure.getSegments();
+
+		assertEquals(Set.of(new SegmentNode(points.getPoint("A"), points.getPoint("F"))), segments(db.mergeCollinear()));
+		assertEquals(segments(db), segments(db.splitCollinear(points)));
+	}
+
+	@Test
+	void overlappingTest() {
+		SegmentNodeDatabase db = database(A, C, B, D);
+
+		assertEquals(Set.of(new SegmentNode(A, D)), segments(db.mergeCollinear()));
+		assertEquals(Set.of(new SegmentNode(A, B), new SegmentNode(B, C), new SegmentNode(C, D)),
+				segments(db.splitCollinear(null)));
+	}
+
+	@Test
+	void containedTest() {
+		SegmentNodeDatabase db = database(A, D, C, B);
+
+		assertEquals(Set.of(new SegmentNode(A, D)), segments(db.mergeCollinear()));
+		assertEquals(Set.of(new SegmentNode(A, B), new SegmentNode(B, C), new SegmentNode(C, D)),
+				segments(db.splitCollinear(null)));
+	}
+
+	@Test
+	void separateLinesTest() {
+		// a gap, a parallel line, and a crossing segment are left alone
+		PointNode e = new PointNode("E", 0, 1);
+		PointNode f = new PointNode("F", 6, 1);
+		PointNode g = new PointNode("G", 3, -1);
+		PointNode h = new PointNode("H", 3, 2);
+		SegmentNodeDatabase db = database(A, B, C, D, e, f, g, h);
+
+		assertEquals(segments(db), segments(db.mergeCollinear()));
+		assertEquals(segments(db), segments(db.splitCollinear(null)));
+	}
+
+	@Test
+	void splitAtPointsTest() {
+		PointNode p = new PointNode("P", 4, 4);
+		PointNode m = new PointNode("M", 2, 2);
+		PointNode off = new PointNode("Off", 2, 2.5);
+		PointNodeDatabase points = new PointNodeDatabase(List.of(A, p, m, off));
+		SegmentNodeDatabase db = database(A, p);
+
+		assertEquals(segments(db), segments(db.splitCollinear(null)));
+		assertEquals(Set.of(new SegmentNode(A, m), new SegmentNode(m, p)), segments(db.splitCollinear(points)));
+	}
+
+	@Test
+	void longDiagonalRunsTest() {
+		// runs crossing a grid of points, as one segment and as a chain of
+		// overlapping ones, are split at every point of the grid they pass
+		int n = 40;
+		PointNodeDatabase points = new PointNodeDatabase();
+		for (int x = 0; x < n; x++)
+			for (int y = 0; y < n; y++)
+				points.put(new PointNode(x, y));
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		db.addUndirectedEdge(points.getPoint(0, 0), points.getPoint(n - 1, n - 1));
+		for (int x = 0; x + 3 < n; x++)
+			db.addUndirectedEdge(points.getPoint(x, n - 1 - x), points.getPoint(x + 3, n - 4 - x));
+		db.addUndirectedEdge(points.getPoint(0, 1), points.getPoint(2 * ((n - 2) / 2), 1 + (n - 2) / 2));
+
+		Set<SegmentNode> expected = new HashSet<SegmentNode>();
+		for (int x = 0; x + 1 < n; x++) {
+			expected.add(new SegmentNode(points.getPoint(x, x), points.getPoint(x + 1, x + 1)));
+			expected.add(new SegmentNode(points.getPoint(x, n - 1 - x), points.getPoint(x + 1, n - 2 - x)));
+		}
+		for (int x = 0; x + 2 < n; x += 2)
+			expected.add(new SegmentNode(points.getPoint(x, 1 + x / 2), points.getPoint(x + 2, 2 + x / 2)));
+
+		assertEquals(expected, segments(db.splitCollinear(points)));
+	}
+
+	@Test
+	void nearlyHorizontalTest() {
+		// within EPSILON of horizontal, pointing either way
+		PointNode a = new PointNode("a", 0, 0);
+		PointNode b = new PointNode("b", 5, 1e-8);
+		PointNode c = new PointNode("c", 10, -1e-8);
+		PointNode d = new PointNode("d", 3, 0);
+		SegmentNodeDatabase db = database(b, a, c, d);
+
+		assertEquals(Set.of(new SegmentNode(a, c)), segments(db.mergeCollinear()));
+	}
+
+	@Test
+	void randomCoverageTest() {
+		Random random = new Random(23);
+		// directions of the lines segments are drawn on
+		int[][] directions = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 }, { 1, 2 }, { -2, 1 } };
+
+		for (int round = 0; round < 30; round++) {
+			SegmentNodeDatabase db = new SegmentNodeDatabase();
+			for (int i = 0; i < 25; i++) {
+				int[] direction = directions[random.nextInt(directions.length)];
+				int x = random.nextInt(5);
+				int y = random.nextInt(5);
+				int from = random.nextInt(5) - 2;
+				int to = from + 1 + random.nextInt(4);
+				db.addUndirectedEdge(new PointNode(x + from * direction[0], y + from * direction[1]),
+						new PointNode(x + to * direction[0], y + to * direction[1]));
+			}
+			Set<SegmentNode> original = segments(db);
+			Set<SegmentNode> merged = segments(db.mergeCollinear());
+			Set<SegmentNode> split = segments(db.splitCollinear(null));
+
+			// the same points are covered
+			for (int i = -40; i <= 40; i++) {
+				for (int j = -40; j <= 40; j++) {
+					PointNode p = new PointNode(i / 4.0, j / 4.0);
+					boolean expected = covered(original, p);
+					assertEquals(expected, covered(merged, p), p.toString());
+					assertEquals(expected, covered(split, p), p.toString());
+				}
+			}
+
+			List<SegmentNode> mergedList = new ArrayList<SegmentNode>(merged);
+			for (int i = 0; i < mergedList.size(); i++) {
+				for (int j = i + 1; j < mergedList.size(); j++) {
+					SegmentNode s = mergedList.get(i);
+					SegmentNode t = mergedList.get(j);
+					// merged segments on one line do not even touch
+					if (collinear(s, t))
+						assertFalse(onSegment(s, t.getPoint1(), false) || onSegment(s, t.getPoint2(), false)
+								|| onSegment(t, s.getPoint1(), false), s + " " + t);
+				}
+			}
+
+			for (SegmentNode s : split) {
+				for (SegmentNode t : split) {
+					// no split segment has a collinear endpoint inside it
+					if (s != t && collinear(s, t))
+						assertFalse(onSegment(s, t.getPoint1(), true) || onSegment(s, t.getPoint2(), true), s + " " + t);
+				}
+			}
+		}
+	}
+}
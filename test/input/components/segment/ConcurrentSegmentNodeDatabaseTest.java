@@ -0,0 +1,126 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.point.PointNode;
+
+public class ConcurrentSegmentNodeDatabaseTest {
+	private static final int SIDE = 30;
+
+	/**
+	 * @return the edges of a grid, each as a pair of equal but distinct
+	 *         PointNode instances per endpoint, in random order.
+	 */
+	private static List<PointNode[]> gridEdges(Random random) {
+		List<PointNode[]> edges = new ArrayList<PointNode[]>();
+		for (int i = 0; i < SIDE; i++) {
+			for (int j = 0; j < SIDE; j++) {
+				PointNode point = new PointNode("P" + i + "_" + j, i, j);
+				if (i + 1 < SIDE)
+					edges.add(new PointNode[] { point, new PointNode("P" + (i + 1) + "_" + j, i + 1, j) });
+				if (j + 1 < SIDE)
+					edges.add(new PointNode[] { point, new PointNode("P" + i + "_" + (j + 1), i, j + 1) });
+			}
+		}
+		Collections.shuffle(edges, random);
+		return edges;
+	}
+
+	/**
+	 * Adds every edge from the given number of threads, each thread taking
+	 * every threads-th edge, and some edges twice.
+	 */
+	private static void addConcurrently(SegmentNodeDatabase db, List<PointNode[]> edges, int threads)
+			throws InterruptedException {
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			int first = t;
+			workers.add(new Thread(() -> {
+				for (int i = first; i < edges.size(); i += threads) {
+					db.addUndirectedEdge(edges.get(i)[0], edges.get(i)[1]);
+					if (i % 7 == 0)
+						db.addUndirectedEdge(edges.get(i)[1], edges.get(i)[0]);
+				}
+			}));
+		}
+		for (Thread worker : workers)
+			worker.start();
+		for (Thread worker : workers)
+			worker.join();
+	}
+
+	@Test
+	void singleThreadMatchesSequentialTest() {
+		List<PointNode[]> edges = gridEdges(new Random(1));
+		SegmentNodeDatabase sequential = new SegmentNodeDatabase();
+		SegmentNodeDatabase concurrent = new ConcurrentSegmentNodeDatabase();
+		for (PointNode[] edge : edges) {
+			sequential.addUndirectedEdge(edge[0], edge[1]);
+			concurrent.addUndirectedEdge(edge[0], edge[1]);
+		}
+
+		assertEquals(sequential.asSegmentList().toString(), concurrent.asSegmentList().toString());
+		assertEquals(sequential.asUniqueSegmentList().toString(), concurrent.asUniqueSegmentList().toString());
+		assertEquals(sequential.numUndirectedEdges(), concurrent.numUndirectedEdges());
+
+		StringBuilder expected = new StringBuilder();
+		sequential.unparse(expected, 0);
+		StringBuilder actual = new StringBuilder();
+		concurrent.unparse(actual, 0);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	void concurrentInsertTest() throws InterruptedException {
+		List<PointNode[]> edges = gridEdges(new Random(2));
+		SegmentNodeDatabase db = new ConcurrentSegmentNodeDatabase(4);
+
+		addConcurrently(db, edges, 8);
+
+		int expected = 2 * SIDE * (SIDE - 1);
+		assertEquals(expected, db.numUndirectedEdges());
+		assertEquals(expected, db.recountUndirectedEdges());
+		assertEquals(expected, db.asUniqueSegmentList().size());
+		assertEquals(2 * expected, db.asSegmentList().size());
+		assertEquals(SIDE * SIDE, db.freeze().size());
+		for (PointNode[] edge : edges)
+			assertTrue(db.freeze().hasEdge(edge[1], edge[0]));
+	}
+
+	@Test
+	void readersSeeWholeEdgesTest() throws InterruptedException {
+		List<PointNode[]> edges = gridEdges(new Random(3));
+		SegmentNodeDatabase db = new ConcurrentSegmentNodeDatabase(4);
+		AtomicBoolean done = new AtomicBoolean();
+		List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+		Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				Set<SegmentNode> directed = new HashSet<SegmentNode>();
+				List<SegmentNode> segments = db.asSegmentList();
+				for (SegmentNode segment : segments)
+					directed.add(segment);
+				// SegmentNode equality ignores direction, so each undirected
+				// edge must appear exactly twice
+				if (directed.size() * 2 != segments.size())
+					failures.add(segments.size() + " directed edges for " + directed.size() + " segments");
+			}
+		});
+		reader.start();
+		addConcurrently(db, edges, 4);
+		done.set(true);
+		reader.join();
+
+		assertEquals(List.of(), failures);
+	}
+}
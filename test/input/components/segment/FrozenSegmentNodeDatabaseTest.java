@@ -0,0 +1,118 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.point.PointNode;
+import utilities.math.MathUtilities;
+
+public class FrozenSegmentNodeDatabaseTest {
+
+	@Test
+	void freezeEmptyTest() {
+		FrozenSegmentNodeDatabase frozen = new SegmentNodeDatabase().freeze();
+
+		assertEquals(0, frozen.size());
+		assertEquals(0, frozen.numDirectedEdges());
+		assertEquals(-1, frozen.indexOf(new PointNode(0, 0)));
+	}
+
+	@Test
+	void freezeTriangleTest() {
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("C", 0, 1);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		db.addUndirectedEdge(a, c);
+		db.addUndirectedEdge(a, b);
+
+		FrozenSegmentNodeDatabase frozen = db.freeze();
+		db.addUndirectedEdge(b, c);
+
+		assertEquals(3, frozen.size());
+		assertEquals("A", frozen.getPoint(0).getName());
+		assertEquals("C", frozen.getPoint(1).getName());
+		assertEquals("B", frozen.getPoint(2).getName());
+		assertEquals(2, frozen.degree(0));
+		assertEquals(1, frozen.neighbor(0, 0));
+		assertEquals(2, frozen.neighbor(0, 1));
+		assertTrue(frozen.hasEdge(new PointNode(1, 0), new PointNode(0, 0)));
+		assertFalse(frozen.hasEdge(1, 2));
+		assertEquals(2, frozen.numUndirectedEdges());
+		assertEquals(4, frozen.numDirectedEdges());
+		assertThrows(IndexOutOfBoundsException.class, () -> frozen.neighbor(1, 1));
+	}
+
+	@Test
+	void indexOfWithinEpsilonTest() {
+		// the neighbor C2 is equal to C, across a cell border
+		double border = MathUtilities.QUANTUM * 1000;
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode c = new PointNode("C", border - MathUtilities.EPSILON / 4, 1);
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		adjLists.put(a, new LinkedHashSet<PointNode>(List.of(c)));
+		FrozenSegmentNodeDatabase frozen = new SegmentNodeDatabase(adjLists).freeze();
+
+		PointNode c2 = new PointNode("C2", border + MathUtilities.EPSILON / 4, 1);
+		assertEquals(2, frozen.size());
+		assertEquals(1, frozen.indexOf(c2));
+		assertTrue(frozen.hasEdge(a, c2));
+		assertFalse(frozen.hasEdge(c2, a));
+		assertEquals(-1, frozen.indexOf(new PointNode(border, 1 + MathUtilities.EPSILON * 2)));
+		assertEquals(-1, frozen.indexOf(null));
+	}
+
+	@Test
+	void freezeMatchesDatabaseTest() {
+		Random random = new Random(3);
+		List<PointNode> points = new ArrayList<PointNode>();
+		for (int i = 0; i < 50; i++)
+			points.add(new PointNode("P" + i, random.nextInt(10), random.nextInt(10)));
+
+		// directed edges, some to points without adjacency lists
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		for (int i = 0; i < 40; i++) {
+			PointNode from = points.get(random.nextInt(25));
+			adjLists.computeIfAbsent(from, p -> new LinkedHashSet<PointNode>())
+					.add(points.get(random.nextInt(points.size())));
+		}
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+		for (int i = 0; i < 80; i++)
+			db.addUndirectedEdge(points.get(random.nextInt(25)), points.get(random.nextInt(25)));
+
+		FrozenSegmentNodeDatabase frozen = db.freeze();
+		List<SegmentNode> segments = db.asSegmentList();
+		assertEquals(segments.size(), frozen.numDirectedEdges());
+		assertEquals(db.numUndirectedEdges(), frozen.numUndirectedEdges());
+
+		for (SegmentNode segment : segments)
+			assertTrue(frozen.hasEdge(segment.getPoint1(), segment.getPoint2()));
+
+		for (int i = 0; i < frozen.size(); i++) {
+			assertEquals(i, frozen.indexOf(frozen.getPoint(i)));
+			int[] previous = { -1 };
+			frozen.forEachNeighbor(i, j -> {
+				assertTrue(j > previous[0]);
+				previous[0] = j;
+			});
+			for (int j = 0; j < frozen.size(); j++)
+				assertEquals(hasDirectedEdge(segments, frozen.getPoint(i), frozen.getPoint(j)), frozen.hasEdge(i, j));
+		}
+	}
+
+	private static boolean hasDirectedEdge(List<SegmentNode> segments, PointNode from, PointNode to) {
+		for (SegmentNode segment : segments)
+			if (segment.getPoint1().equals(from) && segment.getPoint2().equals(to))
+				return true;
+		return false;
+	}
+}
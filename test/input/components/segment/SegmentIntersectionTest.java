@@ -0,0 +1,177 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.parser.JSONParser;
+import utilities.io.FileUtilities;
+import utilities.math.MathUtilities;
+
+public class SegmentIntersectionTest {
+	private static FigureNode parse(String filename) {
+		return (FigureNode) new JSONParser().parse(FileUtilities.readFileFilterComments(filename));
+	}
+
+	private static String key(PointNode point, SegmentNode a, SegmentNode b) {
+		String first = a.toString();
+		String second = b.toString();
+		if (first.compareTo(second) > 0) {
+			String swap = first;
+			first = second;
+			second = swap;
+		}
+		return Math.round(point.getX() * 1e4) + "," + Math.round(point.getY() * 1e4) + " " + first + " " + second;
+	}
+
+	private static double cross(double x1, double y1, double x2, double y2) {
+		return x1 * y2 - y1 * x2;
+	}
+
+	private static boolean onSegment(SegmentNode segment, PointNode point) {
+		double dx = segment.getPoint2().getX() - segment.getPoint1().getX();
+		double dy = segment.getPoint2().getY() - segment.getPoint1().getY();
+		double px = point.getX() - segment.getPoint1().getX();
+		double py = point.getY() - segment.getPoint1().getY();
+		double length = Math.hypot(dx, dy);
+		double along = (px * dx + py * dy) / length;
+		return Math.abs(cross(dx, dy, px, py)) / length < MathUtilities.EPSILON
+				&& along > -MathUtilities.EPSILON && along < length + MathUtilities.EPSILON;
+	}
+
+	private static boolean isEndpoint(SegmentNode segment, PointNode point) {
+		return segment.getPoint1().equals(point) || segment.getPoint2().equals(point);
+	}
+
+	/**
+	 * Checks every pair of segments directly.
+	 */
+	private static Set<String> bruteForce(List<SegmentNode> segments) {
+		Set<String> found = new TreeSet<String>();
+		for (int i = 0; i < segments.size(); i++) {
+			for (int j = i + 1; j < segments.size(); j++) {
+				SegmentNode a = segments.get(i);
+				SegmentNode b = segments.get(j);
+				List<PointNode> candidates = new ArrayList<PointNode>();
+				double dxA = a.getPoint2().getX() - a.getPoint1().getX();
+				double dyA = a.getPoint2().getY() - a.getPoint1().getY();
+				double dxB = b.getPoint2().getX() - b.getPoint1().getX();
+				double dyB = b.getPoint2().getY() - b.getPoint1().getY();
+				double denominator = cross(dxA, dyA, dxB, dyB);
+				if (Math.abs(denominator) < MathUtilities.EPSILON * Math.hypot(dxA, dyA) * Math.hypot(dxB, dyB)) {
+					// parallel: only the endpoints of overlapping segments
+					candidates.add(a.getPoint1());
+					candidates.add(a.getPoint2());
+					candidates.add(b.getPoint1());
+					candidates.add(b.getPoint2());
+				} else {
+					double dx = b.getPoint1().getX() - a.getPoint1().getX();
+					double dy = b.getPoint1().getY() - a.getPoint1().getY();
+					double t = cross(dx, dy, dxB, dyB) / denominator;
+					candidates.add(new PointNode(a.getPoint1().getX() + t * dxA, a.getPoint1().getY() + t * dyA));
+				}
+				for (PointNode point : candidates)
+					if (onSegment(a, point) && onSegment(b, point) && !(isEndpoint(a, point) && isEndpoint(b, point)))
+						found.add(key(point, a, b));
+			}
+		}
+		return found;
+	}
+
+	private static Set<String> swept(SegmentNodeDatabase db) {
+		Set<String> found = new TreeSet<String>();
+		for (SegmentIntersection intersection : db.intersections())
+			for (SegmentNode[] pair : intersection.getPairs())
+				found.add(key(intersection.getPoint(), pair[0], pair[1]));
+		return found;
+	}
+
+	@Test
+	void starTest() {
+		FigureNode star = parse("testFiles/star.json");
+		PointNodeDatabase points = star.getPointsDatabase();
+
+		List<SegmentIntersection> intersections = star.getSegments().intersections(points);
+
+		assertEquals(5, intersections.size());
+		for (SegmentIntersection intersection : intersections) {
+			assertEquals(2, intersection.getSegments().size());
+			assertEquals(1, intersection.getPairs().size());
+		}
+		assertEquals(10, points.size());
+		assertTrue(points.contains(intersections.get(0).getPoint()));
+		assertEquals(bruteForce(star.getSegments().asUniqueSegmentList()), swept(star.getSegments()));
+	}
+
+	@Test
+	void crossingSymmetricTriangleTest() {
+		List<SegmentIntersection> intersections = parse("testFiles/crossing_symmetric_triangle.json").getSegments()
+				.intersections();
+
+		assertEquals(1, intersections.size());
+		assertEquals(new PointNode(3, 3), intersections.get(0).getPoint());
+	}
+
+	@Test
+	void sharedEndpointsTest() {
+		assertTrue(parse("testFiles/collinear_line_segments.json").getSegments().intersections().isEmpty());
+		assertTrue(parse("testFiles/single_triangle.json").getSegments().intersections().isEmpty());
+	}
+
+	@Test
+	void degenerateTest() {
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		// a vertical segment crossed by a horizontal one, touched by a T and
+		// overlapped by a collinear segment
+		db.addUndirectedEdge(new PointNode("A", 0, 0), new PointNode("B", 0, 4));
+		db.addUndirectedEdge(new PointNode("C", -1, 1), new PointNode("D", 1, 1));
+		db.addUndirectedEdge(new PointNode("E", 0, 2), new PointNode("F", 2, 2));
+		db.addUndirectedEdge(new PointNode("G", 0, 3), new PointNode("H", 0, 6));
+
+		List<SegmentIntersection> intersections = db.intersections();
+
+		assertEquals(4, intersections.size());
+		assertEquals(new PointNode(0, 1), intersections.get(0).getPoint());
+		assertEquals(new PointNode(0, 2), intersections.get(1).getPoint());
+		assertEquals(new PointNode(0, 3), intersections.get(2).getPoint());
+		assertEquals(new PointNode(0, 4), intersections.get(3).getPoint());
+		assertEquals(bruteForce(db.asUniqueSegmentList()), swept(db));
+	}
+
+	@Test
+	void gridMatchesBruteForceTest() {
+		// integer coordinates on a small grid make every degenerate case common
+		Random random = new Random(15);
+		for (int round = 0; round < 50; round++) {
+			SegmentNodeDatabase db = new SegmentNodeDatabase();
+			for (int i = 0; i < 25; i++)
+				db.addUndirectedEdge(new PointNode(random.nextInt(7), random.nextInt(7)),
+						new PointNode(random.nextInt(7), random.nextInt(7)));
+
+			assertEquals(bruteForce(db.asUniqueSegmentList()), swept(db), "round " + round);
+		}
+	}
+
+	@Test
+	void randomMatchesBruteForceTest() {
+		Random random = new Random(16);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		for (int i = 0; i < 300; i++) {
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 100;
+			db.addUndirectedEdge(new PointNode(x, y),
+					new PointNode(x + random.nextGaussian() * 10, y + random.nextGaussian() * 10));
+		}
+
+		assertEquals(bruteForce(db.asUniqueSegmentList()), swept(db));
+	}
+}
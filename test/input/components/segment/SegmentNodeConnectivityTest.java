@@ -0,0 +1,237 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.point.PointNode;
+
+public class SegmentNodeConnectivityTest {
+
+	/**
+	 * Labels the components of the frozen database by repeated relabeling,
+	 * with the smallest index in each component as its label.
+	 */
+	private static int[] bruteForceLabels(FrozenSegmentNodeDatabase frozen) {
+		int[] labels = new int[frozen.size()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = i;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < labels.length; i++) {
+				for (int k = 0; k < frozen.degree(i); k++) {
+					int j = frozen.neighbor(i, k);
+					int label = Math.min(labels[i], labels[j]);
+					if (labels[i] != label || labels[j] != label) {
+						labels[i] = label;
+						labels[j] = label;
+						changed = true;
+					}
+				}
+			}
+		}
+		return labels;
+	}
+
+	private static int countRoots(int[] labels) {
+		int roots = 0;
+		for (int i = 0; i < labels.length; i++)
+			if (labels[i] == i)
+				roots++;
+		return roots;
+	}
+
+	/**
+	 * Checks each cycle joins its points in order and back to the first.
+	 */
+	private static void assertCycles(SegmentNodeDatabase db, List<List<PointNode>> cycles) {
+		FrozenSegmentNodeDatabase frozen = db.freeze();
+		for (List<PointNode> cycle : cycles) {
+			if (cycle.size() == 1) {
+				assertTrue(frozen.hasEdge(cycle.get(0), cycle.get(0)));
+				continue;
+			}
+			assertTrue(cycle.size() >= 3, cycle.toString());
+			assertEquals(cycle.size(), new LinkedHashSet<PointNode>(cycle).size(), cycle.toString());
+			for (int i = 0; i < cycle.size(); i++) {
+				PointNode from = cycle.get(i);
+				PointNode to = cycle.get((i + 1) % cycle.size());
+				assertTrue(frozen.hasEdge(from, to) || frozen.hasEdge(to, from), cycle.toString());
+			}
+		}
+	}
+
+	@Test
+	void emptyTest() {
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+
+		assertEquals(0, db.numComponents());
+		assertTrue(db.isConnected());
+		assertFalse(db.connected(new PointNode(0, 0), new PointNode(0, 0)));
+		assertTrue(db.cycleClosingSegments().isEmpty());
+		assertTrue(db.cycleBasis().isEmpty());
+		assertEquals(0, db.freeze().componentLabels(ForkJoinPool.commonPool()).length);
+	}
+
+	@Test
+	void triangleAndSegmentTest() {
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("C", 0, 1);
+		PointNode d = new PointNode("D", 5, 5);
+		PointNode e = new PointNode("E", 6, 5);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		db.addUndirectedEdge(a, b);
+		db.addUndirectedEdge(b, c);
+		db.addUndirectedEdge(c, a);
+		db.addUndirectedEdge(d, e);
+
+		assertEquals(2, db.numComponents());
+		assertFalse(db.isConnected());
+		assertTrue(db.connected(a, new PointNode(0, 1)));
+		assertFalse(db.connected(a, d));
+		assertFalse(db.connected(a, new PointNode(9, 9)));
+		// built on first use, from the segments in asUniqueSegmentList order
+		assertEquals(List.of(new SegmentNode(b, c)), db.cycleClosingSegments());
+
+		List<List<PointNode>> cycles = db.cycleBasis();
+		assertEquals(1, cycles.size());
+		assertEquals(Set.of(a, b, c), Set.copyOf(cycles.get(0)));
+		assertCycles(db, cycles);
+
+		// joining the components, then repeating a segment, closes nothing
+		db.addUndirectedEdge(c, d);
+		db.addUndirectedEdge(d, c);
+		assertEquals(1, db.numComponents());
+		assertTrue(db.isConnected());
+		assertEquals(1, db.cycleClosingSegments().size());
+
+		db.addUndirectedEdge(e, e);
+		assertEquals(2, db.cycleClosingSegments().size());
+		assertEquals(2, db.cycleBasis().size());
+	}
+
+	@Test
+	void directedTest() {
+		// A -> B, C -> B, D alone; B has no adjacency list
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("C", 2, 0);
+		PointNode d = new PointNode("D", 3, 0);
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		adjLists.put(a, new LinkedHashSet<PointNode>(List.of(b)));
+		adjLists.put(c, new LinkedHashSet<PointNode>(List.of(b)));
+		adjLists.put(d, new LinkedHashSet<PointNode>());
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+
+		assertEquals(2, db.numComponents());
+		assertTrue(db.connected(a, c));
+		assertTrue(db.connected(b, c));
+
+		// B gets an adjacency list of its own, keeping its component
+		db.addUndirectedEdge(b, d);
+		assertEquals(1, db.numComponents());
+		db.addUndirectedEdge(a, c);
+		assertEquals(1, db.cycleClosingSegments().size());
+
+		List<List<PointNode>> cycles = db.cycleBasis();
+		assertEquals(1, cycles.size());
+		assertCycles(db, cycles);
+	}
+
+	@Test
+	void randomMatchesBruteForceTest() {
+		Random random = new Random(13);
+		for (int round = 0; round < 20; round++) {
+			SegmentNodeDatabase db = new SegmentNodeDatabase();
+			List<PointNode> points = new ArrayList<PointNode>();
+			for (int i = 0; i < 40; i++)
+				points.add(new PointNode("P" + i, random.nextInt(10), random.nextInt(10)));
+			db.addUndirectedEdge(points.get(0), points.get(1));
+
+			for (int step = 0; step < 60; step++) {
+				// the first query builds the components; later ones see updates
+				FrozenSegmentNodeDatabase frozen = db.freeze();
+				int[] labels = bruteForceLabels(frozen);
+				assertEquals(countRoots(labels), db.numComponents());
+				assertArrayEquals(labels, frozen.componentLabels(ForkJoinPool.commonPool()));
+
+				PointNode p = points.get(random.nextInt(points.size()));
+				PointNode q = points.get(random.nextInt(points.size()));
+				int i = frozen.indexOf(p);
+				int j = frozen.indexOf(q);
+				assertEquals(i != -1 && j != -1 && labels[i] == labels[j], db.connected(p, q));
+
+				// independent cycles: segments - points + components
+				int segments = db.asUniqueSegmentList().size();
+				assertEquals(segments - frozen.size() + db.numComponents(), db.cycleClosingSegments().size());
+				List<List<PointNode>> cycles = db.cycleBasis();
+				assertEquals(db.cycleClosingSegments().size(), cycles.size());
+				assertCycles(db, cycles);
+
+				db.addUndirectedEdge(p, q);
+			}
+		}
+	}
+
+	@Test
+	void parallelLabelsTest() {
+		// a long path and a grid, unioned from many threads at once
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		for (int i = 0; i < 5000; i++)
+			db.addUndirectedEdge(new PointNode(i, -10), new PointNode(i + 1, -10));
+		for (int i = 0; i < 60; i++) {
+			for (int j = 0; j < 60; j++) {
+				db.addUndirectedEdge(new PointNode(i, j), new PointNode(i + 1, j));
+				db.addUndirectedEdge(new PointNode(i, j), new PointNode(i, j + 1));
+			}
+		}
+
+		FrozenSegmentNodeDatabase frozen = db.freeze();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			int[] labels = frozen.componentLabels(pool);
+			assertArrayEquals(bruteForceLabels(frozen), labels);
+			assertEquals(2, countRoots(labels));
+			assertEquals(2, db.numComponents());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void concurrentTest() throws InterruptedException {
+		ConcurrentSegmentNodeDatabase db = new ConcurrentSegmentNodeDatabase(4);
+		db.addUndirectedEdge(new PointNode(0, 0), new PointNode(1, 0));
+		assertEquals(1, db.numComponents());
+
+		// four threads each build a ring of their own
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int ring = t + 1;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 100; i++) {
+					db.addUndirectedEdge(new PointNode(ring * 1000 + i, 0), new PointNode(ring * 1000 + (i + 1) % 100, 0));
+					db.numComponents();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(5, db.numComponents());
+		assertEquals(4, db.cycleClosingSegments().size());
+		assertEquals(4, db.cycleBasis().size());
+	}
+}
@@ -4,14 +4,19 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
 import input.components.point.PointNode;
+import utilities.math.MathUtilities;
 
 class SegmentNodeDatabaseTest {
 	public SegmentNodeDatabase build() {
@@ -271,4 +276,166 @@ class SegmentNodeDatabaseTest {
 		assertEquals(3, uniqueSegments.size());
 	}
 
+	@Test
+	void asUniqueSegmentListMatchesPairwiseTest() {
+		// directed edges from the map constructor mixed with undirected ones
+		Random random = new Random(31);
+		List<PointNode> points = new ArrayList<PointNode>();
+		for (int i = 0; i < 40; i++)
+			points.add(new PointNode("P" + i, random.nextInt(10), random.nextInt(10)));
+
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		for (int i = 0; i < 60; i++) {
+			PointNode from = points.get(random.nextInt(points.size()));
+			adjLists.computeIfAbsent(from, p -> new LinkedHashSet<PointNode>())
+					.add(points.get(random.nextInt(points.size())));
+		}
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+		for (int i = 0; i < 60; i++)
+			db.addUndirectedEdge(points.get(random.nextInt(points.size())), points.get(random.nextInt(points.size())));
+
+		List<SegmentNode> expected = new ArrayList<SegmentNode>();
+		for (SegmentNode segment : db.asSegmentList())
+			if (!expected.contains(segment))
+				expected.add(segment);
+
+		List<SegmentNode> uniqueSegments = db.asUniqueSegmentList();
+		assertEquals(expected.size(), uniqueSegments.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i).toString(), uniqueSegments.get(i).toString());
+
+		int[] count = new int[1];
+		db.forEachUniqueSegment((from, to) -> count[0]++);
+		assertEquals(expected.size(), count[0]);
+	}
+
+	@Test
+	void numUndirectedEdgesMatchesRecountTest() {
+		Random random = new Random(47);
+		List<PointNode> points = new ArrayList<PointNode>();
+		for (int i = 0; i < 30; i++)
+			points.add(new PointNode("P" + i, random.nextInt(8), random.nextInt(8)));
+
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		for (int i = 0; i < 80; i++) {
+			PointNode from = points.get(random.nextInt(points.size()));
+			adjLists.computeIfAbsent(from, p -> new LinkedHashSet<PointNode>())
+					.add(points.get(random.nextInt(points.size())));
+		}
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+		assertEquals(db.recountUndirectedEdges(), db.numUndirectedEdges());
+
+		for (int i = 0; i < 100; i++) {
+			db.addUndirectedEdge(points.get(random.nextInt(points.size())), points.get(random.nextInt(points.size())));
+			assertEquals(db.recountUndirectedEdges(), db.numUndirectedEdges());
+		}
+
+		// pairs of distinct points with an edge each way
+		Set<SegmentNode> seen = new HashSet<SegmentNode>();
+		int expected = 0;
+		for (SegmentNode segment : db.asSegmentList())
+			if (!segment.getPoint1().equals(segment.getPoint2()) && !seen.add(segment))
+				expected++;
+		assertEquals(expected, db.numUndirectedEdges());
+	}
+
+
+	// lazy views
+
+	private static List<String> strings(Iterable<SegmentNode> segments) {
+		List<String> strings = new ArrayList<String>();
+		for (SegmentNode segment : segments)
+			strings.add(segment.toString());
+		return strings;
+	}
+
+	@Test
+	void segmentViewsMatchListsTest() {
+		for (SegmentNodeDatabase db : List.of(build(), buildDirected(), new SegmentNodeDatabase())) {
+			List<String> expected = strings(db.asSegmentList());
+			assertEquals(expected, strings(db.segmentStream().collect(Collectors.toList())));
+			assertEquals(expected, strings(db.segments()));
+
+			List<SegmentNode> edges = new ArrayList<SegmentNode>();
+			db.forEachEdge((from, to) -> edges.add(new SegmentNode(from, to)));
+			assertEquals(expected, strings(edges));
+
+			List<String> expectedUnique = strings(db.asUniqueSegmentList());
+			assertEquals(expectedUnique, strings(db.uniqueSegmentStream().collect(Collectors.toList())));
+			assertEquals(expectedUnique, strings(db.uniqueSegments()));
+		}
+	}
+
+	@Test
+	void segmentStreamShortCircuitTest() {
+		SegmentNodeDatabase db = build();
+
+		assertEquals("Segment [A(3.0, 6.0), B(2.0, 4.0)]", db.segmentStream().findFirst().get().toString());
+		assertEquals(strings(db.asUniqueSegmentList().subList(0, 3)),
+				strings(db.uniqueSegmentStream().limit(3).collect(Collectors.toList())));
+		assertTrue(db.segmentStream().anyMatch(segment -> segment.getPoint1().getName().equals("X")));
+		assertFalse(new SegmentNodeDatabase().segments().iterator().hasNext());
+	}
+
+	@Test
+	void segmentStreamParallelTest() {
+		Random random = new Random(5);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		for (int i = 0; i < 5000; i++)
+			db.addUndirectedEdge(new PointNode(random.nextInt(100), random.nextInt(100)),
+					new PointNode(random.nextInt(100), random.nextInt(100)));
+
+		assertEquals(strings(db.asSegmentList()),
+				strings(db.segmentStream().parallel().collect(Collectors.toList())));
+		assertEquals(strings(db.asUniqueSegmentList()),
+				strings(db.uniqueSegmentStream().parallel().collect(Collectors.toList())));
+		assertEquals(db.numUndirectedEdges(), db.uniqueSegmentStream().parallel()
+				.filter(segment -> !segment.getPoint1().equals(segment.getPoint2())).count());
+	}
+
+
+	// epsilon equality
+
+	@Test
+	void addUndirectedEdgeWithinEpsilonTest() {
+		// E2 is equal to E, but sits on the other side of a cell border
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		double border = MathUtilities.QUANTUM * 1000;
+		PointNode d = new PointNode("D", 0, 0);
+		PointNode e = new PointNode("E", border - MathUtilities.EPSILON / 4, 0);
+		PointNode e2 = new PointNode("E2", border + MathUtilities.EPSILON / 4, 0);
+		PointNode f = new PointNode("F", 0, 1);
+
+		db.addUndirectedEdge(d, e);
+		db.addUndirectedEdge(e2, f);
+		db.addUndirectedEdge(d, e2);
+
+		assertEquals(2, db.numUndirectedEdges());
+		assertEquals(4, db.asSegmentList().size());
+		assertEquals("Segment [E(0.00199, 0.0), F(0.0, 1.0)]", db.asSegmentList().get(2).toString());
+	}
+
+	@Test
+	void mapConstructorNeighborsWithinEpsilonTest() {
+		// E and E2 are only neighbors at first, on either side of a cell border
+		double border = MathUtilities.QUANTUM * 1000;
+		PointNode d = new PointNode("D", 0, 0);
+		PointNode e = new PointNode("E", border - MathUtilities.EPSILON / 4, 0);
+		PointNode e2 = new PointNode("E2", border + MathUtilities.EPSILON / 4, 0);
+		PointNode f = new PointNode("F", 0, 1);
+		Map<PointNode, Set<PointNode>> adjLists = new LinkedHashMap<PointNode, Set<PointNode>>();
+		adjLists.put(d, new LinkedHashSet<PointNode>(List.of(e)));
+		adjLists.put(f, new LinkedHashSet<PointNode>(List.of(e2)));
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+
+		db.addUndirectedEdge(e2, d);
+
+		assertEquals(1, db.numUndirectedEdges());
+		assertEquals(db.recountUndirectedEdges(), db.numUndirectedEdges());
+		assertEquals(List.of("Segment [D(0.0, 0.0), E(0.00199, 0.0)]", "Segment [F(0.0, 1.0), E(0.00199, 0.0)]"),
+				strings(db.asUniqueSegmentList()));
+		assertEquals(3, db.freeze().size());
+		assertEquals(1, db.numComponents());
+	}
+
 }
\ No newline at end of file
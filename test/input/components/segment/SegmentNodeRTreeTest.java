@@ -0,0 +1,194 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.point.PointNode;
+
+public class SegmentNodeRTreeTest {
+
+	private static double distance(SegmentNode segment, double x, double y) {
+		double x1 = segment.getPoint1().getX();
+		double y1 = segment.getPoint1().getY();
+		double dx = segment.getPoint2().getX() - x1;
+		double dy = segment.getPoint2().getY() - y1;
+		double lengthSquared = dx * dx + dy * dy;
+		double t = lengthSquared == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+		t = Math.max(0, Math.min(1, t));
+		return Math.hypot(x1 + t * dx - x, y1 + t * dy - y);
+	}
+
+	/**
+	 * @return true if the segment touches the box, by clipping the segment to
+	 *         each of the box's sides in turn.
+	 */
+	private static boolean touches(SegmentNode segment, double minX, double minY, double maxX, double maxY) {
+		double x1 = segment.getPoint1().getX();
+		double y1 = segment.getPoint1().getY();
+		double dx = segment.getPoint2().getX() - x1;
+		double dy = segment.getPoint2().getY() - y1;
+		double[] p = { -dx, dx, -dy, dy };
+		double[] q = { x1 - minX, maxX - x1, y1 - minY, maxY - y1 };
+		double t0 = 0;
+		double t1 = 1;
+		for (int i = 0; i < 4; i++) {
+			if (p[i] == 0) {
+				if (q[i] < 0)
+					return false;
+			} else if (p[i] < 0)
+				t0 = Math.max(t0, q[i] / p[i]);
+			else
+				t1 = Math.min(t1, q[i] / p[i]);
+		}
+		return t0 <= t1;
+	}
+
+	private static Set<SegmentNode> set(List<SegmentNode> segments) {
+		Set<SegmentNode> set = new HashSet<SegmentNode>(segments);
+		assertEquals(segments.size(), set.size(), "segment reported twice");
+		return set;
+	}
+
+	private static void addRandomEdges(SegmentNodeDatabase db, Random random, int n) {
+		for (int i = 0; i < n; i++) {
+			PointNode a = new PointNode(random.nextInt(100), random.nextInt(100));
+			PointNode b = new PointNode(a.getX() + random.nextInt(21) - 10, a.getY() + random.nextInt(21) - 10);
+			db.addUndirectedEdge(a, b);
+		}
+	}
+
+	/**
+	 * Compares every query against brute force over the unique segments.
+	 */
+	private static void assertMatchesBruteForce(SegmentNodeDatabase db, Random random) {
+		List<SegmentNode> all = db.asUniqueSegmentList();
+
+		for (int q = 0; q < 50; q++) {
+			double x = random.nextDouble() * 120 - 10;
+			double y = random.nextDouble() * 120 - 10;
+
+			double best = Double.POSITIVE_INFINITY;
+			for (SegmentNode segment : all)
+				best = Math.min(best, distance(segment, x, y));
+			assertEquals(best, distance(db.nearest(x, y), x, y), 1e-9);
+
+			double radius = random.nextDouble() * 10;
+			Set<SegmentNode> expected = new HashSet<SegmentNode>();
+			for (SegmentNode segment : all)
+				if (distance(segment, x, y) <= radius)
+					expected.add(segment);
+			assertEquals(expected, set(db.withinDistance(x, y, radius)));
+
+			double minX = Math.floor(x) + 0.5;
+			double minY = Math.floor(y) + 0.5;
+			double maxX = minX + random.nextInt(15);
+			double maxY = minY + random.nextInt(15);
+			expected.clear();
+			for (SegmentNode segment : all)
+				if (touches(segment, minX, minY, maxX, maxY))
+					expected.add(segment);
+			assertEquals(expected, set(db.withinBox(minX, minY, maxX, maxY)));
+		}
+	}
+
+	@Test
+	void rTreeEmptyTest() {
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+
+		assertNull(db.nearest(0, 0));
+		assertTrue(db.withinDistance(0, 0, 10).isEmpty());
+		assertTrue(db.withinBox(-1, -1, 1, 1).isEmpty());
+	}
+
+	@Test
+	void rTreeSimpleTest() {
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 4, 4);
+		PointNode c = new PointNode("C", 4, 0);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		db.addUndirectedEdge(a, b);
+		db.addUndirectedEdge(a, c);
+
+		assertEquals(new SegmentNode(a, c), db.nearest(3, -1));
+		assertEquals(new SegmentNode(a, b), db.nearest(1, 2));
+
+		// inside the diagonal's bounding box, but off the diagonal itself
+		assertEquals(List.of(), db.withinBox(0.5, 3, 1, 3.5));
+		assertEquals(List.of(new SegmentNode(a, b)), db.withinBox(1.5, 1, 2.5, 2));
+		assertEquals(2, db.withinBox(-1, -1, 0, 0).size());
+
+		assertEquals(List.of(new SegmentNode(a, c)), db.withinDistance(2, -1, 1));
+		assertEquals(2, db.withinDistance(2, -1, 2.5).size());
+	}
+
+	@Test
+	void rTreeBulkLoadedTest() {
+		Random random = new Random(7);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		addRandomEdges(db, random, 2000);
+
+		assertMatchesBruteForce(db, random);
+	}
+
+	@Test
+	void rTreeIncrementalTest() {
+		Random random = new Random(11);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		addRandomEdges(db, random, 50);
+		assertMatchesBruteForce(db, random);
+
+		// grow the tree by inserts, splitting nodes, then past the point where
+		// it is rebuilt
+		for (int round = 0; round < 4; round++) {
+			addRandomEdges(db, random, 100);
+			assertEquals(db.asUniqueSegmentList().size(), db.tree().size());
+			assertMatchesBruteForce(db, random);
+		}
+	}
+
+	@Test
+	void rTreeRepeatedEdgesTest() {
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		db.addUndirectedEdge(a, b);
+		db.nearest(0, 0);
+
+		db.addUndirectedEdge(b, a);
+		db.addUndirectedEdge(new PointNode(0, 0), new PointNode(1, 0));
+
+		assertEquals(1, db.tree().size());
+		assertEquals(1, db.withinDistance(0.5, 0, 1).size());
+	}
+
+	@Test
+	void rTreeConcurrentTest() throws InterruptedException {
+		ConcurrentSegmentNodeDatabase db = new ConcurrentSegmentNodeDatabase(4);
+		Random random = new Random(3);
+		addRandomEdges(db, random, 100);
+		db.nearest(0, 0);
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			Random threadRandom = new Random(t);
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 200; i++) {
+					addRandomEdges(db, threadRandom, 1);
+					db.withinDistance(threadRandom.nextInt(100), threadRandom.nextInt(100), 5);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(db.asUniqueSegmentList().size(), db.tree().size());
+		assertMatchesBruteForce(db, random);
+	}
+}
@@ -0,0 +1,139 @@
+package input.components.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.parser.JSONParser;
+import utilities.io.FileUtilities;
+
+public class SegmentNodeTrianglesTest {
+
+	private static Set<Set<PointNode>> asSets(List<PointNode[]> triangles) {
+		Set<Set<PointNode>> sets = new HashSet<Set<PointNode>>();
+		for (PointNode[] triangle : triangles) {
+			assertEquals(3, triangle.length);
+			Set<PointNode> set = Set.of(triangle);
+			assertTrue(sets.add(set), "triangle listed twice: " + set);
+		}
+		return sets;
+	}
+
+	/**
+	 * Finds the triangles by testing every triple of points.
+	 */
+	private static Set<Set<PointNode>> bruteForce(SegmentNodeDatabase db) {
+		FrozenSegmentNodeDatabase frozen = db.freeze();
+		int n = frozen.size();
+		boolean[][] joined = new boolean[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				joined[i][j] = frozen.hasEdge(i, j) || frozen.hasEdge(j, i);
+
+		Set<Set<PointNode>> triangles = new HashSet<Set<PointNode>>();
+		for (int i = 0; i < n; i++)
+			for (int j = i + 1; j < n; j++)
+				for (int k = j + 1; k < n; k++)
+					if (joined[i][j] && joined[j][k] && joined[i][k])
+						triangles.add(Set.of(frozen.getPoint(i), frozen.getPoint(j), frozen.getPoint(k)));
+		return triangles;
+	}
+
+	private static SegmentNodeDatabase figureSegments(String filename) {
+		JSONParser parser = new JSONParser();
+		FigureNode figure = (FigureNode) parser.parse(FileUtilities.readFileFilterComments(filename));
+		return figure.getSegments();
+	}
+
+	@Test
+	void emptyTest() {
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+
+		assertEquals(0, db.numTriangles());
+		assertTrue(db.triangles().isEmpty());
+		assertEquals(0, db.numTriangles(ForkJoinPool.commonPool()));
+	}
+
+	@Test
+	void figureFilesTest() {
+		assertEquals(1, figureSegments("testFiles/single_triangle.json").numTriangles());
+
+		// five points all joined: 5 choose 3 triangles
+		SegmentNodeDatabase db = figureSegments("testFiles/fully_connected_irregular_polygon.json");
+		assertEquals(10, db.numTriangles());
+		assertEquals(bruteForce(db), asSets(db.triangles()));
+	}
+
+	@Test
+	void completeGraphTest() {
+		List<PointNode> points = new ArrayList<PointNode>();
+		for (int i = 0; i < 30; i++)
+			points.add(new PointNode("P" + i, Math.cos(i), Math.sin(i)));
+		SegmentNodeDatabase db = new SegmentNodeDatabase();
+		for (int i = 0; i < points.size(); i++)
+			for (int j = i + 1; j < points.size(); j++)
+				db.addUndirectedEdge(points.get(i), points.get(j));
+
+		assertEquals(30 * 29 * 28 / 6, db.numTriangles());
+		assertEquals(30 * 29 * 28 / 6, db.triangles().size());
+	}
+
+	@Test
+	void directedAndLoopsTest() {
+		// A -> B, B -> C, A -> C, and C joined to itself
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("C", 0, 1);
+		Map<PointNode, Set<PointNode>> adjLists = new HashMap<PointNode, Set<PointNode>>();
+		adjLists.put(a, new LinkedHashSet<PointNode>(List.of(b, c)));
+		adjLists.put(b, new LinkedHashSet<PointNode>(List.of(c)));
+		adjLists.put(c, new LinkedHashSet<PointNode>(List.of(c)));
+		SegmentNodeDatabase db = new SegmentNodeDatabase(adjLists);
+
+		assertEquals(1, db.numTriangles());
+		assertEquals(Set.of(Set.of(a, b, c)), asSets(db.triangles()));
+	}
+
+	@Test
+	void randomMatchesBruteForceTest() {
+		Random random = new Random(17);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int round = 0; round < 20; round++) {
+				List<PointNode> points = new ArrayList<PointNode>();
+				for (int i = 0; i < 40; i++)
+					points.add(new PointNode("P" + i, i, round));
+				SegmentNodeDatabase db = new SegmentNodeDatabase();
+				int edges = 20 + random.nextInt(300);
+				for (int i = 0; i < edges; i++)
+					db.addUndirectedEdge(points.get(random.nextInt(40)), points.get(random.nextInt(40)));
+
+				Set<Set<PointNode>> expected = bruteForce(db);
+				assertEquals(expected.size(), db.numTriangles());
+				assertEquals(expected.size(), db.numTriangles(pool));
+				assertEquals(expected, asSets(db.triangles()));
+
+				// the parallel listing keeps the sequential order
+				List<PointNode[]> sequential = db.triangles();
+				List<PointNode[]> parallel = db.triangles(pool);
+				assertEquals(sequential.size(), parallel.size());
+				for (int i = 0; i < sequential.size(); i++)
+					assertArrayEquals(sequential.get(i), parallel.get(i));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package input.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import input.builder.DefaultBuilder;
+import input.components.FigureNode;
+import input.components.point.PackedPointNodeDatabase;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
+import input.exception.ParseException;
+import input.visitor.BinaryWriterVisitor;
+import utilities.io.FileUtilities;
+
+class BinaryFigureParserTest {
+	private static byte[] write(List<FigureNode> figures) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new BinaryWriterVisitor(bytes).write(figures);
+		return bytes.toByteArray();
+	}
+
+	private static String unparse(FigureNode figure) {
+		StringBuilder sb = new StringBuilder();
+		figure.unparse(sb, 0);
+		return sb.toString();
+	}
+
+	private static List<FigureNode> testFigures() {
+		JSONParser parser = new JSONParser();
+		List<FigureNode> figures = new ArrayList<>();
+		File[] files = new File("testFiles").listFiles();
+		Arrays.sort(files);
+		for (File file : files)
+			figures.add((FigureNode) parser.parse(FileUtilities.readFileFilterComments(file.getPath())));
+		return figures;
+	}
+
+	@Test
+	void figureFilesTest() {
+		BinaryFigureParser parser = new BinaryFigureParser();
+		for (FigureNode figure : testFigures()) {
+			FigureNode read = parser.parse(ByteBuffer.wrap(write(List.of(figure))));
+			assertEquals(unparse(figure), unparse(read));
+		}
+	}
+
+	@Test
+	void parseFileTest(@TempDir Path directory) throws Exception {
+		List<FigureNode> figures = testFigures();
+		BinaryFigureConverter.main(new String[] { directory.toString() });
+
+		List<FigureNode> read = new ArrayList<>();
+		File[] files = new File("testFiles").listFiles();
+		Arrays.sort(files);
+		for (File file : files) {
+			String name = file.getName().replace(".json", BinaryFigureFormat.FILE_EXTENSION);
+			read.addAll(new BinaryFigureParser().parseFile(directory.resolve(name).toString()));
+		}
+
+		assertEquals(figures.size(), read.size());
+		for (int i = 0; i < figures.size(); i++)
+			assertEquals(unparse(figures.get(i)), unparse(read.get(i)));
+	}
+
+	@Test
+	void exactPointsTest() {
+		Random random = new Random(37);
+		List<PointNode> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++)
+			points.add(new PointNode(i % 7 == 0 ? "\u00C7" + i : "P" + i, Double.longBitsToDouble(random.nextLong()) % 1e9,
+					random.nextGaussian()));
+		points.add(new PointNode(null, -0.0, 1e-300));
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		for (int i = 0; i < 600; i++)
+			segments.addUndirectedEdge(points.get(random.nextInt(points.size())), points.get(random.nextInt(points.size())));
+		FigureNode figure = new FigureNode(null, new PointNodeDatabase(points), segments);
+		FigureNode other = new FigureNode("empty", new PointNodeDatabase(), new SegmentNodeDatabase());
+
+		List<FigureNode> read = new BinaryFigureParser().parseFigures(ByteBuffer.wrap(write(List.of(figure, other))));
+
+		assertEquals(2, read.size());
+		assertNull(read.get(0).getDescription());
+		List<PointNode> readPoints = new ArrayList<>();
+		read.get(0).getPointsDatabase().forEachPoint(readPoints::add);
+		assertEquals(points.size(), readPoints.size());
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(points.get(i).getName(), readPoints.get(i).getName());
+			assertEquals(Double.doubleToRawLongBits(points.get(i).getX()), Double.doubleToRawLongBits(readPoints.get(i).getX()));
+			assertEquals(Double.doubleToRawLongBits(points.get(i).getY()), Double.doubleToRawLongBits(readPoints.get(i).getY()));
+		}
+		assertEquals(unparse(figure), unparse(read.get(0)));
+		assertEquals(unparse(other), unparse(read.get(1)));
+	}
+
+	@Test
+	void packedPointsTest() {
+		// packed storage hands out a new PointNode on every lookup
+		List<PointNode> points = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+			points.add(new PointNode("P" + i, i % 8, i / 8 * 0.5));
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		for (int i = 0; i + 1 < points.size(); i++)
+			segments.addUndirectedEdge(points.get(i), points.get(i + 1));
+		segments.addUndirectedEdge(new PointNode("P0", 0, 0), new PointNode("P39", 7, 2.0));
+		FigureNode figure = new FigureNode("packed", new PackedPointNodeDatabase(points), segments);
+
+		FigureNode read = new BinaryFigureParser().parse(ByteBuffer.wrap(write(List.of(figure))));
+
+		assertEquals(unparse(figure), unparse(read));
+		assertEquals(segments.numUndirectedEdges(), read.getSegments().numUndirectedEdges());
+	}
+
+	@Test
+	void defaultBuilderTest() {
+		List<FigureNode> read = new BinaryFigureParser(new DefaultBuilder())
+				.parseFigures(ByteBuffer.wrap(write(testFigures())));
+
+		assertEquals(testFigures().size(), read.size());
+		for (FigureNode figure : read)
+			assertNull(figure);
+	}
+
+	@Test
+	void malformedTest() {
+		byte[] bytes = write(testFigures());
+		BinaryFigureParser parser = new BinaryFigureParser();
+
+		byte[] magic = bytes.clone();
+		magic[0] = '{';
+		assertThrows(ParseException.class, () -> parser.parseFigures(ByteBuffer.wrap(magic)));
+
+		byte[] version = bytes.clone();
+		version[4] = BinaryFigureFormat.VERSION + 1;
+		assertThrows(ParseException.class, () -> parser.parseFigures(ByteBuffer.wrap(version)));
+
+		// every truncation fails cleanly
+		for (int length = 0; length < bytes.length; length++) {
+			ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+			assertThrows(ParseException.class, () -> parser.parseFigures(truncated));
+		}
+
+		byte[] trailing = Arrays.copyOf(bytes, bytes.length + 1);
+		assertThrows(ParseException.class, () -> parser.parseFigures(ByteBuffer.wrap(trailing)));
+
+		ParseException missing = assertThrows(ParseException.class,
+				() -> parser.parseFile("testFiles/no_such_file.gfig"));
+		assertTrue(missing.getMessage().contains("testFiles/no_such_file.gfig"), missing.getMessage());
+	}
+
+	@Test
+	void varintRangeTest() {
+		BinaryFigureParser parser = new BinaryFigureParser();
+		byte[] empty = write(List.of());
+		// one figure whose description length takes five bytes
+		ByteBuffer header = ByteBuffer.wrap(empty).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(empty.length - 4, 1);
+
+		// bits above bit 30, or a sixth byte, are out of range
+		for (int last : new int[] { 0x08, 0x10, 0x40, 0x80 }) {
+			byte[] bytes = Arrays.copyOf(empty, empty.length + 5);
+			Arrays.fill(bytes, empty.length, empty.length + 4, (byte) 0x80);
+			bytes[empty.length + 4] = (byte) last;
+			ParseException e = assertThrows(ParseException.class, () -> parser.parseFigures(ByteBuffer.wrap(bytes)));
+			assertTrue(e.getMessage().contains("out of range"), e.getMessage());
+		}
+
+		// the largest length is read, and then found to run past the end
+		byte[] largest = Arrays.copyOf(empty, empty.length + 5);
+		Arrays.fill(largest, empty.length, empty.length + 4, (byte) 0xFF);
+		largest[empty.length + 4] = 0x07;
+		ParseException e = assertThrows(ParseException.class, () -> parser.parseFigures(ByteBuffer.wrap(largest)));
+		assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+	}
+}
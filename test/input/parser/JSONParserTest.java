@@ -3,18 +3,32 @@ package input.parser;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import input.builder.DefaultBuilder;
 import input.components.ComponentNode;
 import input.components.FigureNode;
 import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
 import input.exception.ParseException;
+import input.visitor.JSONWriterVisitor;
+import utilities.io.FileUtilities;
 
 /**
  * Simple test cases for JSONParser
@@ -136,4 +150,251 @@ class JSONParserTest {
 			assertTrue(figNode.getPointsDatabase().contains(p));
 		assertEquals(13, figNode.getSegments().asUniqueSegmentList().size());
 	}
+
+	@ParameterizedTest
+	@MethodSource("provideStringsForCompareJsonToUnparse")
+	void streamingMatchesJsonObjectTest(String filename) {
+		String nodeJson = getFigureJSON(filename);
+
+		StringBuilder streamed = new StringBuilder();
+		getFigureFromJson(nodeJson).unparse(streamed, 0);
+
+		StringBuilder materialized = new StringBuilder();
+		new JSONParser().parse(new JSONObject(nodeJson)).unparse(materialized, 0);
+
+		assertEquals(materialized.toString(), streamed.toString());
+	}
+
+	@Test
+	void segmentsBeforePointsTest() {
+		FigureNode figNode = (FigureNode) getFigureFromJson("""
+				{ "Figure": {
+				    "Segments": [ { "A": ["B"] } ],
+				    "Extra": { "ignored": [1, 2.5e3, true, null, "x"] },
+				    "Points": [
+				      { "name": "A", "x": -1.5, "y": 2e1 },
+				      { "y": 0.001, "x": 3, "name": "B" }
+				    ],
+				    "Description": "escaped \\"quote\\" \\u0041"
+				} }
+				""");
+
+		assertEquals("escaped \"quote\" A", figNode.getDescription());
+		assertEquals("A", figNode.getPointsDatabase().getName(-1.5, 20));
+		assertEquals("B", figNode.getPointsDatabase().getName(3, 0.001));
+		assertEquals(1, figNode.getSegments().numUndirectedEdges());
+	}
+
+	@Test
+	void undefinedPointTest() {
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("""
+					{ "Figure": { "Description": "", "Points": [ { "name": "A", "x": 0, "y": 0 } ],
+					  "Segments": [ { "A": ["Z"] } ] } }
+					""");
+		});
+	}
+
+	@Test
+	void missingFieldTest() {
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("{ \"Figure\": { \"Description\": \"\", \"Points\": [] } }");
+		});
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("{ \"Figure\": { \"Description\": \"\", \"Points\": [ { \"name\": \"A\", \"x\": 0 } ], \"Segments\": [] } }");
+		});
+	}
+
+	@Test
+	void malformedJsonTest() {
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("{ \"Figure\": { \"Description\": \"\" \"Points\": [] } }");
+		});
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("{ \"Figure\": { \"Description\": \"unterminated } }");
+		});
+		assertThrows(ParseException.class, () -> {
+			getFigureFromJson("{ \"Figure\": { \"Description\": \"\", \"Points\": [], \"Segments\": [] } } }");
+		});
+	}
+
+	@ParameterizedTest
+	@MethodSource("provideStringsForCompareJsonToUnparse")
+	void mappedFileMatchesReadFileTest(String filename) {
+		StringBuilder read = new StringBuilder();
+		getFigureFromJson(getFigureJSON(filename)).unparse(read, 0);
+
+		StringBuilder mapped = new StringBuilder();
+		new JSONParser().parse(FileUtilities.mapFileFilterComments(filename)).unparse(mapped, 0);
+
+		assertEquals(read.toString(), mapped.toString());
+	}
+
+	@Test
+	void equalPointsDistinctNamesTest() {
+		// B is within epsilon of A; segments naming either reach the stored A
+		String json = "{ \"Figure\": { \"Description\": \"merged\", \"Points\": ["
+				+ "{ \"name\": \"A\", \"x\": 0, \"y\": 0 }, { \"name\": \"B\", \"x\": 1e-7, \"y\": 0 },"
+				+ "{ \"name\": \"C\", \"x\": 1, \"y\": 0 } ],"
+				+ "\"Segments\": [ { \"A\": [\"C\"] }, { \"B\": [\"C\"] } ] } }";
+
+		FigureNode streamed = (FigureNode) new JSONParser().parse((CharSequence) json);
+		FigureNode dom = (FigureNode) new JSONParser().parse(new JSONObject(json));
+
+		for (FigureNode figure : List.of(streamed, dom)) {
+			assertEquals(2, figure.getPointsDatabase().size());
+			assertEquals("A", figure.getPointsDatabase().getPoint("B").getName());
+			assertEquals(1, figure.getSegments().numUndirectedEdges());
+			assertEquals("Segment [A(0.0, 0.0), C(1.0, 0.0)]", figure.getSegments().asSegmentList().get(0).toString());
+		}
+		assertEquals(unparse(streamed), unparse(dom));
+	}
+
+	@Test
+	void mappedFileNonAsciiTest(@TempDir Path directory) throws IOException {
+		List<PointNode> points = List.of(new PointNode("\u00C5", 0, 0), new PointNode("caf\u00E9", 1, 0),
+				new PointNode("C", 0, 1));
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		segments.addUndirectedEdge(points.get(0), points.get(1));
+		segments.addUndirectedEdge(points.get(1), points.get(2));
+		FigureNode figure = new FigureNode("caf\u00E9 \u00C5", new PointNodeDatabase(points), segments);
+
+		Path file = directory.resolve("figure.json");
+		try (OutputStream out = Files.newOutputStream(file)) {
+			new JSONWriterVisitor(out).write(figure);
+		}
+
+		FigureNode mapped = (FigureNode) new JSONParser().parse(FileUtilities.mapFileFilterComments(file.toString()));
+		assertEquals("caf\u00E9 \u00C5", mapped.getDescription());
+		assertNotNull(mapped.getPointsDatabase().getPoint("\u00C5"));
+		assertEquals(unparse(figure), unparse(mapped));
+		assertEquals(unparse(figure), unparse(getFigureFromJson(FileUtilities.readFile(file.toString()))));
+	}
+
+	/**
+	 * Builds a "Figures" document holding every test file's figure, in order.
+	 */
+	private static String figuresJson(List<String> filenames) {
+		JSONArray figures = new JSONArray();
+		for (String filename : filenames)
+			figures.put(new JSONObject(getFigureJSON(filename)).getJSONObject("Figure"));
+		return new JSONObject().put("Figures", figures).toString(2);
+	}
+
+	private static String unparse(ComponentNode node) {
+		StringBuilder sb = new StringBuilder();
+		node.unparse(sb, 0);
+		return sb.toString();
+	}
+
+	@Test
+	void figuresArrayTest() {
+		List<String> filenames = new ArrayList<>(provideStringsForCompareJsonToUnparse().toList());
+		// repeated so that there are more figures than threads
+		filenames.addAll(new ArrayList<>(filenames));
+		String json = figuresJson(filenames);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			JSONParser parser = new JSONParser(pool);
+			List<FigureNode> streamed = parser.parseFigures(json);
+			List<FigureNode> materialized = parser.parseFigures(new JSONObject(json));
+
+			assertEquals(filenames.size(), streamed.size());
+			assertEquals(filenames.size(), materialized.size());
+			for (int i = 0; i < filenames.size(); i++) {
+				String expected = unparse(getFigureFromJson(getFigureJSON(filenames.get(i))));
+				assertEquals(expected, unparse(streamed.get(i)));
+				assertEquals(expected, unparse(materialized.get(i)));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void figureAndFiguresTest() {
+		String figure = "{ \"Description\": \"%s\", \"Points\": [], \"Segments\": [] }";
+		String json = "{ \"Figure\": " + String.format(figure, "first")
+				+ ", \"Figures\": [ " + String.format(figure, "second") + ", " + String.format(figure, "third")
+				+ " ] }";
+
+		List<FigureNode> figures = new JSONParser().parseFigures(json);
+
+		assertEquals(3, figures.size());
+		assertEquals("first", figures.get(0).getDescription());
+		assertEquals("second", figures.get(1).getDescription());
+		assertEquals("third", figures.get(2).getDescription());
+		assertTrue(new JSONParser().parseFigures("{ \"Figures\": [] }").isEmpty());
+	}
+
+	@Test
+	void figuresErrorTest() {
+		JSONParser parser = new JSONParser();
+
+		assertThrows(ParseException.class, () -> {
+			parser.parseFigures("{ \"Other\": [] }");
+		});
+		assertThrows(ParseException.class, () -> {
+			parser.parseFigures("{ \"Figures\": [ { \"Description\": \"\", \"Points\": [], \"Segments\": [] }, "
+					+ "{ \"Description\": \"\", \"Points\": [] } ] }");
+		});
+		assertThrows(ParseException.class, () -> {
+			parser.parseFigures("{ \"Figures\": [ { \"Description\": \"\", \"Points\": [], \"Segments\": [] } }");
+		});
+	}
+
+	@ParameterizedTest
+	@MethodSource("provideStringsForCompareJsonToUnparse")
+	void defaultBuilderTest(String filename) {
+		JSONParser parser = new JSONParser(new DefaultBuilder());
+
+		assertNull(parser.parse(getFigureJSON(filename)));
+	}
+
+	@Test
+	void defaultBuilderValidatesTest() {
+		JSONParser parser = new JSONParser(new DefaultBuilder());
+
+		assertThrows(ParseException.class, () -> {
+			parser.parse("{ \"Figure\": { \"Description\": \"\", \"Points\": [ { \"name\": \"A\", \"x\": 0, \"y\": 0 } ],"
+					+ " \"Segments\": [ { \"A\": [\"Z\"] } ] } }");
+		});
+		assertThrows(ParseException.class, () -> {
+			parser.parse("{ \"Figure\": { \"Description\": \"\", \"Points\": [] } }");
+		});
+		assertNull(parser.parse("{ \"Figure\": { \"Segments\": [ { \"A\": [\"B\"] } ], \"Description\": \"\","
+				+ " \"Points\": [ { \"name\": \"A\", \"x\": 0, \"y\": 0 }, { \"name\": \"B\", \"x\": 1, \"y\": 0 } ] } }"));
+	}
+
+	/**
+	 * Counts the points and adjacency entries of a figure without storing them.
+	 */
+	private static class CountingBuilder extends DefaultBuilder {
+		int points;
+		int segments;
+
+		@Override
+		public PointNode buildPointNode(String name, double x, double y) {
+			points++;
+			return new PointNode(name, x, y);
+		}
+
+		@Override
+		public void addSegmentToDatabase(SegmentNodeDatabase segments, PointNode from, PointNode to) {
+			this.segments++;
+		}
+	}
+
+	@Test
+	void countingBuilderTest() {
+		CountingBuilder builder = new CountingBuilder();
+
+		new JSONParser(builder).parse(getFigureJSON("testFiles/star.json"));
+
+		FigureNode star = (FigureNode) runFigureParseTest("testFiles/star.json");
+		assertEquals(star.getPointsDatabase().size(), builder.points);
+		// every undirected edge is listed once per endpoint in star.json
+		assertEquals(2 * star.getSegments().numUndirectedEdges(), builder.segments);
+	}
 }
@@ -0,0 +1,59 @@
+package input.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import input.exception.ParseException;
+
+class JSONPullReaderTest {
+	private static double readDouble(String json) {
+		JSONPullReader reader = new JSONPullReader(json);
+		double value = reader.nextDouble();
+		reader.endDocument();
+		return value;
+	}
+
+	@Test
+	void numbersMatchParseDoubleTest() {
+		String[] numbers = { "0", "-0", "13", "-7.25", "0.1", "0.000001", "3.14159265359", "123456789012345",
+				"1234567890123456789", "1e-7", "-2.5E+3", "0.30000000000000004", "9007199254740993" };
+
+		for (String number : numbers)
+			assertEquals(Double.parseDouble(number), readDouble(number), number);
+	}
+
+	@Test
+	void randomDecimalsMatchParseDoubleTest() {
+		Random random = new Random(223);
+		for (int i = 0; i < 10000; i++) {
+			String number = String.valueOf(random.nextInt(2000000) - 1000000) + "."
+					+ String.format("%09d", random.nextInt(1000000000)).substring(0, 1 + random.nextInt(8));
+
+			assertEquals(Double.parseDouble(number), readDouble(number), number);
+		}
+	}
+
+	@Test
+	void invalidNumberTest() {
+		assertThrows(ParseException.class, () -> readDouble("-"));
+		assertThrows(ParseException.class, () -> readDouble("."));
+		assertThrows(ParseException.class, () -> readDouble("1-2"));
+	}
+
+	@Test
+	void nestedStructureTest() {
+		JSONPullReader reader = new JSONPullReader("{ \"a\": [1, {\"b\": []}], \"name\": \"v\" }");
+
+		reader.beginObject();
+		assertEquals("a", reader.nextName());
+		reader.skipValue();
+		assertSame(JSON_Constants.JSON_NAME, reader.nextName());
+		assertEquals("v", reader.nextString());
+		assertFalse(reader.hasNext());
+		reader.endObject();
+		reader.endDocument();
+	}
+}
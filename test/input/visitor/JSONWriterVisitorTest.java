@@ -0,0 +1,239 @@
+package input.visitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.ConcurrentSegmentNodeDatabase;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+import input.parser.JSONParser;
+import utilities.io.FileUtilities;
+
+class JSONWriterVisitorTest {
+	private static String write(FigureNode figure) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new JSONWriterVisitor(bytes).write(figure);
+		return bytes.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String unparse(FigureNode figure) {
+		StringBuilder sb = new StringBuilder();
+		figure.unparse(sb, 0);
+		return sb.toString();
+	}
+
+	// segments by their coordinates, which are kept whatever the names
+	private static List<String> strings(List<SegmentNode> segments) {
+		List<String> strings = new ArrayList<String>();
+		for (SegmentNode segment : segments)
+			strings.add(segment.getPoint1().getX() + "," + segment.getPoint1().getY() + " "
+					+ segment.getPoint2().getX() + "," + segment.getPoint2().getY());
+		return strings;
+	}
+
+	private static List<PointNode> points(FigureNode figure) {
+		List<PointNode> points = new ArrayList<PointNode>();
+		figure.getPointsDatabase().forEachPoint(points::add);
+		return points;
+	}
+
+	/**
+	 * Checks that the figure reads back with the same description, the same
+	 * points in the same order, to the bit, and the same segments.
+	 */
+	private static FigureNode assertRoundTrip(FigureNode figure) {
+		String json = write(figure);
+		FigureNode read = (FigureNode) new JSONParser().parse(json);
+
+		assertEquals(figure.getDescription(), read.getDescription());
+		List<PointNode> expected = points(figure);
+		List<PointNode> actual = points(read);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getName(), actual.get(i).getName());
+			assertEquals(Double.doubleToLongBits(expected.get(i).getX()), Double.doubleToLongBits(actual.get(i).getX()));
+			assertEquals(Double.doubleToLongBits(expected.get(i).getY()), Double.doubleToLongBits(actual.get(i).getY()));
+		}
+		assertEquals(figure.getSegments().asSegmentList().size(), read.getSegments().asSegmentList().size());
+		assertTrue(read.getSegments().asSegmentList().containsAll(figure.getSegments().asSegmentList()));
+		return read;
+	}
+
+	@Test
+	void figureFilesTest() {
+		JSONParser parser = new JSONParser();
+		for (File file : new File("testFiles").listFiles()) {
+			FigureNode figure = (FigureNode) parser.parse(FileUtilities.readFileFilterComments(file.getPath()));
+			FigureNode read = assertRoundTrip(figure);
+
+			assertEquals(unparse(figure), unparse(read), file.getName());
+			assertEquals(write(figure), write(read), file.getName());
+		}
+	}
+
+	@Test
+	void figuresTest() {
+		JSONParser parser = new JSONParser();
+		List<FigureNode> figures = new ArrayList<FigureNode>();
+		for (File file : new File("testFiles").listFiles())
+			figures.add((FigureNode) parser.parse(FileUtilities.readFileFilterComments(file.getPath())));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new JSONWriterVisitor(bytes).write(figures);
+		List<FigureNode> read = parser.parseFigures(bytes.toString(StandardCharsets.UTF_8));
+
+		assertEquals(figures.size(), read.size());
+		for (int i = 0; i < figures.size(); i++)
+			assertEquals(unparse(figures.get(i)), unparse(read.get(i)));
+	}
+
+	@Test
+	void numbersTest() {
+		double[] values = { 0, -0.0, 1, -7, 0.1, 1e-7, -2.5e3, 1e300, Double.MIN_VALUE, Double.MAX_VALUE,
+				9007199254740992.0, 9007199254740994.0, 0.30000000000000004 };
+		List<PointNode> list = new ArrayList<PointNode>();
+		for (int i = 0; i < values.length; i++)
+			list.add(new PointNode("P" + i, values[i], -values[i]));
+		Random random = new Random(29);
+		for (int i = 0; i < 500; i++)
+			list.add(new PointNode("R" + i, Double.longBitsToDouble(random.nextLong()) % 1e6,
+					random.nextDouble() * 1000));
+
+		assertRoundTrip(new FigureNode("numbers", new PointNodeDatabase(list), new SegmentNodeDatabase()));
+		assertTrue(write(new FigureNode("", new PointNodeDatabase(List.of(new PointNode("A", 3, -0.0))),
+				new SegmentNodeDatabase())).contains("\"x\":3,\"y\":-0.0"));
+	}
+
+	@Test
+	void stringsTest() {
+		PointNode a = new PointNode("A \"quoted\" \\ name", 0, 0);
+		PointNode b = new PointNode("tab\tnew\nline\u0001", 1, 0);
+		PointNode c = new PointNode("\u00C7\u20AC\uD83D\uDE00", 0, 1);
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		segments.addUndirectedEdge(a, b);
+		segments.addUndirectedEdge(b, c);
+		FigureNode figure = new FigureNode("/* not a comment */ \u00E9", new PointNodeDatabase(List.of(a, b, c)),
+				segments);
+
+		assertEquals(unparse(figure), unparse(assertRoundTrip(figure)));
+	}
+
+	@Test
+	void adjacencyOrderTest() {
+		// segments added in random order rebuild the same lists, in order
+		Random random = new Random(31);
+		for (int round = 0; round < 50; round++) {
+			List<PointNode> list = new ArrayList<PointNode>();
+			for (int i = 0; i < 12; i++)
+				list.add(new PointNode("P" + i, i, round));
+			SegmentNodeDatabase segments = round % 2 == 0 ? new SegmentNodeDatabase()
+					: new ConcurrentSegmentNodeDatabase();
+			int edges = random.nextInt(40);
+			for (int i = 0; i < edges; i++)
+				segments.addUndirectedEdge(list.get(random.nextInt(12)), list.get(random.nextInt(12)));
+			FigureNode figure = new FigureNode("round " + round, new PointNodeDatabase(list), segments);
+
+			assertEquals(unparse(figure), unparse(assertRoundTrip(figure)));
+		}
+	}
+
+	@Test
+	void unresolvableNamesTest() {
+		// two crossing segments, joined at their crossing by unnamed points
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 2, 2);
+		PointNode c = new PointNode("A", 0, 2);
+		PointNode d = new PointNode(null, 2, 0);
+		PointNode taken = new PointNode("__P3", 5, 5);
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		segments.addUndirectedEdge(a, b);
+		segments.addUndirectedEdge(c, d);
+		PointNodeDatabase points = new PointNodeDatabase(List.of(a, b, c, d, taken));
+		PointNode crossing = segments.intersections(points).get(0).getPoint();
+		PointNode joined = new PointNode(1, 3);
+		points.put(joined);
+		segments.addUndirectedEdge(crossing, joined);
+		segments.addUndirectedEdge(joined, d);
+		FigureNode figure = new FigureNode("unnamed", points, segments);
+
+		String json = write(figure);
+		FigureNode read = (FigureNode) new JSONParser().parse(json);
+
+		List<String> names = new ArrayList<String>();
+		for (PointNode point : points(read))
+			names.add(point.getName());
+		assertEquals(List.of("A", "B", "__P2", "__P3_2", "__P3", "__P5", "__P6"), names);
+		List<PointNode> expected = points(figure);
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i), points(read).get(i));
+		assertEquals(strings(figure.getSegments().asSegmentList()), strings(read.getSegments().asSegmentList()));
+		assertEquals(json, write(read));
+	}
+
+	@Test
+	void nullDescriptionTest() {
+		FigureNode figure = new FigureNode(null, new PointNodeDatabase(List.of(new PointNode("A", 0, 0))),
+				new SegmentNodeDatabase());
+
+		FigureNode read = (FigureNode) new JSONParser().parse(write(figure));
+
+		assertEquals("", read.getDescription());
+		assertEquals(write(new FigureNode("", figure.getPointsDatabase(), figure.getSegments())), write(read));
+	}
+
+	@Test
+	void directedEdgeTest() {
+		// A to B in one direction only, B and C joined both ways
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("C", 0, 1);
+		Map<PointNode, Set<PointNode>> adjLists = new LinkedHashMap<PointNode, Set<PointNode>>();
+		adjLists.put(a, new LinkedHashSet<PointNode>(List.of(b)));
+		adjLists.put(b, new LinkedHashSet<PointNode>(List.of(c)));
+		adjLists.put(c, new LinkedHashSet<PointNode>(List.of(b)));
+		SegmentNodeDatabase segments = new SegmentNodeDatabase(adjLists);
+		FigureNode figure = new FigureNode("directed", new PointNodeDatabase(List.of(a, b, c)), segments);
+
+		FigureNode read = (FigureNode) new JSONParser().parse(write(figure));
+
+		// the one-way edge reads back undirected
+		assertEquals(1, segments.numUndirectedEdges());
+		assertEquals(2, read.getSegments().numUndirectedEdges());
+		assertEquals(strings(segments.asUniqueSegmentList()), strings(read.getSegments().asUniqueSegmentList()));
+		assertEquals(write(figure), write(read));
+	}
+
+	@Test
+	void missingEndpointTest() {
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		segments.addUndirectedEdge(new PointNode("A", 0, 0), new PointNode("B", 1, 0));
+		FigureNode figure = new FigureNode("", new PointNodeDatabase(List.of(new PointNode("A", 0, 0))), segments);
+
+		assertThrows(IllegalArgumentException.class, () -> write(figure));
+		assertThrows(IllegalStateException.class,
+				() -> new JSONWriterVisitor(new ByteArrayOutputStream()).visitSegmentDatabaseNode(segments, null));
+	}
+
+	@Test
+	void nonFiniteTest() {
+		FigureNode figure = new FigureNode("", new PointNodeDatabase(List.of(new PointNode("A", Double.NaN, 0))),
+				new SegmentNodeDatabase());
+
+		assertThrows(IllegalArgumentException.class, () -> write(figure));
+	}
+}
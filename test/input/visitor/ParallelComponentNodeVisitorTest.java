@@ -0,0 +1,123 @@
+package input.visitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.SegmentNode;
+import input.components.segment.SegmentNodeDatabase;
+
+class ParallelComponentNodeVisitorTest {
+	/**
+	 * Lists the names of the points and the segments, in order, by
+	 * concatenating lists; each partial list belongs to one task, so the
+	 * earlier one can be added to.
+	 */
+	private static class NameVisitor extends ParallelComponentNodeVisitor<List<String>, String> {
+		NameVisitor(ForkJoinPool pool) {
+			super(pool, (earlier, later) -> {
+				earlier.addAll(later);
+				return earlier;
+			});
+		}
+
+		private static List<String> list(String name) {
+			List<String> list = new ArrayList<String>();
+			list.add(name);
+			return list;
+		}
+
+		@Override
+		public List<String> visitPointNode(PointNode node, String prefix) {
+			return list(prefix + node.getName());
+		}
+
+		@Override
+		public List<String> visitSegmentNode(SegmentNode node, String prefix) {
+			return list(prefix + node.getPoint1().getName() + "-" + node.getPoint2().getName());
+		}
+	}
+
+	/**
+	 * Sums the lengths of the segments, leaving the points out.
+	 */
+	private static class LengthVisitor extends ParallelComponentNodeVisitor<Double, Void> {
+		LengthVisitor(ForkJoinPool pool) {
+			super(pool, Double::sum);
+		}
+
+		@Override
+		public Double visitPointNode(PointNode node, Void context) {
+			return null;
+		}
+
+		@Override
+		public Double visitSegmentNode(SegmentNode node, Void context) {
+			return Math.hypot(node.getPoint2().getX() - node.getPoint1().getX(),
+					node.getPoint2().getY() - node.getPoint1().getY());
+		}
+	}
+
+	private static FigureNode grid(int side) {
+		PointNode[][] points = new PointNode[side][side];
+		List<PointNode> list = new ArrayList<PointNode>();
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				points[i][j] = new PointNode("P" + i + "_" + j, i, j);
+				list.add(points[i][j]);
+			}
+		}
+		SegmentNodeDatabase segments = new SegmentNodeDatabase();
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				if (i + 1 < side)
+					segments.addUndirectedEdge(points[i][j], points[i + 1][j]);
+				if (j + 1 < side)
+					segments.addUndirectedEdge(points[i][j], points[i][j + 1]);
+			}
+		}
+		return new FigureNode("grid", new PointNodeDatabase(list), segments);
+	}
+
+	private static List<String> sequentialNames(FigureNode figure, String prefix) {
+		List<String> names = new ArrayList<String>();
+		figure.getPointsDatabase().forEachPoint(point -> names.add(prefix + point.getName()));
+		for (SegmentNode segment : figure.getSegments().asUniqueSegmentList())
+			names.add(prefix + segment.getPoint1().getName() + "-" + segment.getPoint2().getName());
+		return names;
+	}
+
+	@Test
+	void orderTest() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int side : new int[] { 1, 5, 40, 70 }) {
+				FigureNode figure = grid(side);
+				assertEquals(sequentialNames(figure, ">"), figure.accept(new NameVisitor(pool), ">"));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void reduceTest() {
+		FigureNode figure = grid(60);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			// 2 * 60 * 59 unit segments
+			assertEquals(7080.0, figure.accept(new LengthVisitor(pool), null), 1e-9);
+			assertNull(new LengthVisitor(pool).visitPointNodeDatabase(figure.getPointsDatabase(), null));
+			assertNull(new NameVisitor(pool).visitSegmentDatabaseNode(new SegmentNodeDatabase(), null));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
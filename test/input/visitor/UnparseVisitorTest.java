@@ -0,0 +1,139 @@
+package input.visitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import input.components.FigureNode;
+import input.components.point.PointNode;
+import input.components.point.PointNodeDatabase;
+import input.components.segment.ConcurrentSegmentNodeDatabase;
+import input.components.segment.SegmentNodeDatabase;
+import input.parser.JSONParser;
+import utilities.io.FileUtilities;
+import utilities.io.StringUtilities;
+
+class UnparseVisitorTest {
+	private static FigureNode triangle(SegmentNodeDatabase segments) {
+		PointNode a = new PointNode("A", 0, 0);
+		PointNode b = new PointNode("B", 1, 0);
+		PointNode c = new PointNode("\u00C7", 0.5, 1.5);
+		PointNodeDatabase points = new PointNodeDatabase(List.of(a, b, c));
+		segments.addUndirectedEdge(a, b);
+		segments.addUndirectedEdge(b, c);
+		segments.addUndirectedEdge(c, a);
+		return new FigureNode("A \"small\" triangle", points, segments);
+	}
+
+	private static final String TRIANGLE = String.join("\n",
+			"        Figure",
+			"        {",
+			"            Description: \"A \"small\" triangle\"",
+			"            Points:",
+			"            {",
+			"                Point(A)(0.0, 0.0)",
+			"                Point(B)(1.0, 0.0)",
+			"                Point(\u00C7)(0.5, 1.5)",
+			"            }",
+			"            Segments:",
+			"            {",
+			"                A : B \u00C7",
+			"                B : A \u00C7",
+			"                \u00C7 : B A",
+			"            }",
+			"        }",
+			"");
+
+	@Test
+	void formatTest() {
+		StringBuilder sb = new StringBuilder();
+		new UnparseVisitor(sb).unparse(triangle(new SegmentNodeDatabase()), 2);
+		assertEquals(TRIANGLE, sb.toString());
+
+		sb.setLength(0);
+		triangle(new ConcurrentSegmentNodeDatabase()).unparse(sb, 2);
+		assertEquals(TRIANGLE, sb.toString());
+	}
+
+	@Test
+	void levelTest() {
+		// one level object serves the whole figure, and is left as it was
+		StringBuilder sb = new StringBuilder();
+		UnparseVisitor.Level level = new UnparseVisitor.Level(2);
+		assertNull(triangle(new SegmentNodeDatabase()).accept(new UnparseVisitor(sb), level));
+		assertEquals(TRIANGLE, sb.toString());
+		assertEquals(2, level.get());
+	}
+
+	@Test
+	void writerAndStreamTest() {
+		StringWriter writer = new StringWriter();
+		UnparseVisitor visitor = new UnparseVisitor(writer);
+		visitor.unparse(triangle(new SegmentNodeDatabase()), 2);
+		visitor.flush();
+		assertEquals(TRIANGLE, writer.toString());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		visitor = new UnparseVisitor(bytes);
+		visitor.unparse(triangle(new SegmentNodeDatabase()), 2);
+		visitor.flush();
+		assertEquals(TRIANGLE, bytes.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void figureFilesTest() {
+		JSONParser parser = new JSONParser();
+		for (File file : new File("testFiles").listFiles()) {
+			FigureNode figure = (FigureNode) parser.parse(FileUtilities.readFileFilterComments(file.getPath()));
+			StringBuilder sb = new StringBuilder();
+			figure.unparse(sb, 1);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			UnparseVisitor visitor = new UnparseVisitor(bytes);
+			visitor.unparse(figure, 1);
+			visitor.flush();
+			assertEquals(sb.toString(), bytes.toString(StandardCharsets.UTF_8), file.getName());
+		}
+	}
+
+	@Test
+	void indentTest() {
+		for (int level = 0; level < 40; level++) {
+			assertEquals(4 * level, StringUtilities.indent(level).length());
+			assertTrue(StringUtilities.indent(level).isBlank());
+		}
+		assertSame(StringUtilities.indent(3), StringUtilities.indent(3));
+	}
+
+	@Test
+	void ioExceptionTest() {
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void flush() throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		UnparseVisitor visitor = new UnparseVisitor(failing);
+
+		assertThrows(UncheckedIOException.class, () -> visitor.unparse(new PointNode("A", 0, 0), 0));
+		assertThrows(UncheckedIOException.class, visitor::flush);
+	}
+}